@@ -131,6 +131,13 @@ angular.module('gsApp.core.backend',[])
               url: apiRoot+'/stores/'+workspace+'/'+store
             });
           },
+          getResources: function(workspace, store, page, pagesize) {
+            return http({
+              method: 'GET',
+              url: apiRoot+'/stores/'+workspace+'/'+store+'/resources?page='+
+                (page || 0)+'&pagesize='+(pagesize || 25)
+            });
+          },
           delete: function(workspace, store) {
             return http({
               method: 'DELETE',
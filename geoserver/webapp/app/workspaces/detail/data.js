@@ -69,7 +69,6 @@ angular.module('gsApp.workspaces.data', [
         function(result) {
           if (result.success) {
             var storeData = result.data;
-            $scope.selectedStore.resources = storeData.resources;
             $scope.selectedStore.layers = storeData.layers;
             $scope.selectedStore.layers.forEach(function(lyr) {
               var url = GeoServer.map.thumbnail.get($scope.workspace,
@@ -84,6 +83,12 @@ angular.module('gsApp.workspaces.data', [
             }];
           }
         });
+        GeoServer.datastores.getResources($scope.workspace, store.name).then(
+        function(result) {
+          if (result.success) {
+            $scope.selectedStore.resources = result.data.resources;
+          }
+        });
       };
 
       $scope.addNewStore = function() {
@@ -0,0 +1,156 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.controllers;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.geoserver.catalog.ProjectionPolicy;
+import org.geoserver.catalog.impl.DataStoreInfoImpl;
+import org.geoserver.catalog.impl.FeatureTypeInfoImpl;
+import org.geoserver.catalog.impl.LayerInfoImpl;
+import org.geoserver.catalog.impl.NamespaceInfoImpl;
+import org.geoserver.catalog.impl.WorkspaceInfoImpl;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.FeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.json.JSONWrapper;
+import com.google.common.io.ByteStreams;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Benchmarks the {@link IO} encoders on synthetic feature types.
+ * <p>
+ * Layers and schemas are encoded to a null stream since their expensive properties are deferred and only
+ * computed when encoded.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOBenchmark {
+
+    /**
+     * Layer backed by a feature type with a point geometry and <tt>attributes - 1</tt> other attributes.
+     */
+    @State(Scope.Benchmark)
+    public static class Schema {
+
+        @Param({"10", "50", "100", "500"})
+        int attributes;
+
+        SimpleFeatureType type;
+
+        LayerInfoImpl layer;
+
+        @Setup
+        public void setUp() throws Exception {
+            CoordinateReferenceSystem crs = CRS.decode("EPSG:4326");
+
+            SimpleFeatureTypeBuilder b = new SimpleFeatureTypeBuilder();
+            b.setName("bench");
+            b.setNamespaceURI("http://bench.org");
+            b.setCRS(crs);
+            b.add("the_geom", Point.class);
+            for (int i = 1; i < attributes; i++) {
+                b.add("attribute" + i, i % 3 == 0 ? String.class : i % 3 == 1 ? Integer.class : Double.class);
+            }
+            type = b.buildFeatureType();
+
+            WorkspaceInfoImpl ws = new WorkspaceInfoImpl();
+            ws.setName("bench");
+
+            NamespaceInfoImpl ns = new NamespaceInfoImpl();
+            ns.setPrefix("bench");
+            ns.setURI("http://bench.org");
+
+            DataStoreInfoImpl store = new DataStoreInfoImpl(null);
+            store.setName("bench");
+            store.setWorkspace(ws);
+
+            // skips the resource pool, the feature type is never read from the store
+            FeatureTypeInfoImpl ft = new FeatureTypeInfoImpl(null) {
+                @Override
+                public FeatureType getFeatureType() throws IOException {
+                    return type;
+                }
+            };
+            ft.setName("bench");
+            ft.setNativeName("bench");
+            ft.setTitle("Benchmark");
+            ft.setNamespace(ns);
+            ft.setStore(store);
+            ft.setSRS("EPSG:4326");
+            ft.setNativeCRS(crs);
+            ft.setProjectionPolicy(ProjectionPolicy.NONE);
+            ft.setNativeBoundingBox(new ReferencedEnvelope(-180, 180, -90, 90, crs));
+            ft.setLatLonBoundingBox(new ReferencedEnvelope(-180, 180, -90, 90, crs));
+
+            layer = new LayerInfoImpl();
+            layer.setResource(ft);
+            Metadata.created(layer, new Date());
+            Metadata.modified(layer, new Date());
+        }
+    }
+
+    /**
+     * Projection and envelope in a common geographic crs.
+     */
+    @State(Scope.Benchmark)
+    public static class Geo {
+
+        CoordinateReferenceSystem crs;
+
+        ReferencedEnvelope bbox;
+
+        @Setup
+        public void setUp() throws Exception {
+            crs = CRS.decode("EPSG:4326");
+            bbox = new ReferencedEnvelope(-124.73, -66.97, 24.96, 49.37, crs);
+        }
+    }
+
+    @Benchmark
+    public JSONObj layer(Schema s) throws IOException {
+        JSONObj obj = IO.layer(new JSONObj(), s.layer);
+        JSONWrapper.write(obj, ByteStreams.nullOutputStream());
+        return obj;
+    }
+
+    @Benchmark
+    public JSONObj schema(Schema s) throws IOException {
+        JSONObj obj = IO.schema(new JSONObj(), s.type, true);
+        JSONWrapper.write(obj, ByteStreams.nullOutputStream());
+        return obj;
+    }
+
+    @Benchmark
+    public JSONObj proj(Geo g) {
+        return IO.proj(new JSONObj(), g.crs, null);
+    }
+
+    @Benchmark
+    public JSONObj bounds(Geo g) {
+        return IO.bounds(new JSONObj(), g.bbox);
+    }
+}
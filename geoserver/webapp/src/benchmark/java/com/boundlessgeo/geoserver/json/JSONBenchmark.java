@@ -0,0 +1,108 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Benchmarks building, encoding and parsing JSON objects.
+ * <p>
+ * The encoded document is an array of <tt>size</tt> objects shaped like the layers returned by the api.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSONBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    String[] keys;
+
+    JSONArr doc;
+
+    byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key" + i;
+        }
+
+        doc = new JSONArr();
+        for (int i = 0; i < size; i++) {
+            JSONObj obj = doc.addObject()
+                .put("name", "layer" + i)
+                .put("workspace", "bench")
+                .put("title", "Layer number " + i)
+                .put("description", "A layer with a \"quoted\" description\nover two lines")
+                .put("type", "vector")
+                .put("geometry", "Point");
+            obj.putObject("proj")
+                .put("srs", "EPSG:4326")
+                .put("type", "geographic")
+                .put("unit", "degrees");
+            obj.putObject("bbox").putObject("native")
+                .put("west", -180.0)
+                .put("south", -90.0)
+                .put("east", 180.0)
+                .put("north", 90.0)
+                .putArray("center").add(0.0).add(0.0);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JSONWrapper.write(doc, out);
+        encoded = out.toByteArray();
+    }
+
+    @Benchmark
+    public JSONObj put() {
+        JSONObj obj = new JSONObj();
+        for (int i = 0; i < size; i++) {
+            obj.put(keys[i], i);
+        }
+        return obj;
+    }
+
+    @Benchmark
+    public JSONObj putObject() {
+        JSONObj obj = new JSONObj();
+        for (int i = 0; i < size; i++) {
+            obj.putObject(keys[i]).put("value", i);
+        }
+        return obj;
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        JSONWrapper.write(doc, ByteStreams.nullOutputStream());
+    }
+
+    @Benchmark
+    public JSONWrapper<?> read() throws IOException {
+        return JSONWrapper.read(new ByteArrayInputStream(encoded));
+    }
+}
@@ -0,0 +1,395 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import static org.geoserver.catalog.Predicates.acceptAll;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogBuilder;
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CoverageInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.catalog.util.CloseableIterator;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.logging.Logging;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Computes the native and lat/lon bounds of feature types and coverages in the background.
+ * <p>
+ * Resources missing either envelope are found when the application starts or the catalog is reloaded, and as
+ * they are added. Resources whose bounds are stale, because their crs or projection policy changed, are found
+ * as they are modified. Bounds are computed by {@link CatalogBuilder#setupBounds(ResourceInfo)}, which
+ * reprojects the native envelope to lat/lon, on a small pool with at most a few resources of the same store
+ * at a time. Bounds set through the api are never recomputed, but if only one of the envelopes is set the
+ * other is completed from it, or from the data. Resources whose bounds can not be computed are reported as
+ * failed, they are tried again when the catalog is reloaded or their bounds or crs are set.
+ * </p>
+ * <p>
+ * Where the bounds of a resource come from is recorded in its metadata, see {@link #source(ResourceInfo)}.
+ * The service is turned off by setting <tt>SUITE_BOUNDS</tt> to <tt>false</tt>, the pool size is set with
+ * <tt>SUITE_BOUNDS_THREADS</tt> and the per store limit with <tt>SUITE_BOUNDS_PER_STORE</tt>.
+ * </p>
+ */
+@Component
+public class BoundsService implements CatalogListener, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+
+    static Logger LOG = Logging.getLogger(BoundsService.class);
+
+    public static final String ENABLED = "SUITE_BOUNDS";
+    public static final String THREADS = "SUITE_BOUNDS_THREADS";
+    public static final String PER_STORE = "SUITE_BOUNDS_PER_STORE";
+
+    /** metadata key for the source of the bounds */
+    static final String SOURCE = "bboxSource";
+
+    /** metadata key flagging bounds that could not be computed */
+    static final String ERROR = "bboxFailed";
+
+    /** bounds computed from the data */
+    public static final String COMPUTED = "computed";
+
+    /** bounds set by a user */
+    public static final String USER = "user";
+
+    /** bounds missing, due to be computed */
+    public static final String PENDING = "pending";
+
+    /** bounds missing, they could not be computed */
+    public static final String FAILED = "failed";
+
+    /**
+     * Where the bounds of a resource come from, one of {@link #COMPUTED}, {@link #USER}, {@link #PENDING} or
+     * {@link #FAILED}.
+     * <p>
+     * Bounds set up before this service recorded their source are reported as computed. Bounds only partly set
+     * by a user are pending until completed.
+     * </p>
+     */
+    public static String source(ResourceInfo r) {
+        if (r.getNativeBoundingBox() == null || r.getLatLonBoundingBox() == null) {
+            return r.getMetadata() != null && Boolean.TRUE.equals(r.getMetadata().get(ERROR)) ? FAILED : PENDING;
+        }
+        Serializable source = r.getMetadata() != null ? r.getMetadata().get(SOURCE) : null;
+        return USER.equals(source) ? USER : COMPUTED;
+    }
+
+    /**
+     * Records where the bounds of a resource come from, {@link #COMPUTED} or {@link #USER}, clearing a previous
+     * failure.
+     */
+    public static void source(ResourceInfo r, String source) {
+        if (r.getMetadata() != null) {
+            r.getMetadata().put(SOURCE, source);
+            r.getMetadata().remove(ERROR);
+        }
+    }
+
+    final GeoServer geoServer;
+
+    final int perStore;
+
+    ThreadPoolExecutor executor;
+
+    /** resources queued or being computed */
+    final Set<String> scheduled = new HashSet<String>();
+
+    /** resources waiting, by store */
+    final Map<String,Deque<String>> queued = new HashMap<String,Deque<String>>();
+
+    /** resources being computed, by store */
+    final Map<String,Integer> running = new HashMap<String,Integer>();
+
+    /** resources whose crs is being modified */
+    final Set<String> stale = new HashSet<String>();
+
+    final AtomicLong computed = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+
+    @Autowired
+    public BoundsService(GeoServer geoServer) {
+        this.geoServer = geoServer;
+        this.perStore = property(PER_STORE, 1);
+    }
+
+    int property(String name, int def) {
+        String value = GeoServerExtensions.getProperty(name);
+        if (value != null) {
+            try {
+                return Math.max(1, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + name + ": " + value);
+            }
+        }
+        return def;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        // also received for the refresh of child contexts
+        if (executor != null || "false".equalsIgnoreCase(GeoServerExtensions.getProperty(ENABLED))) {
+            return;
+        }
+
+        int threads = property(THREADS, 2);
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setNameFormat("suite-bounds-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+
+        geoServer.getCatalog().addListener(this);
+        scan();
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules the resources missing bounds, in the background.
+     */
+    void scan() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                CloseableIterator<ResourceInfo> it = geoServer.getCatalog().list(ResourceInfo.class, acceptAll());
+                try {
+                    while (it.hasNext()) {
+                        ResourceInfo r = it.next();
+                        String source = source(r);
+                        if (PENDING.equals(source) || FAILED.equals(source)) {
+                            schedule(r);
+                        }
+                    }
+                }
+                finally {
+                    it.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Schedules the computation of the bounds of a resource, unless already scheduled.
+     */
+    public synchronized void schedule(ResourceInfo r) {
+        if (executor == null || !(r instanceof FeatureTypeInfo || r instanceof CoverageInfo)
+            || r.getId() == null || r.getStore() == null || !scheduled.add(r.getId())) {
+            return;
+        }
+
+        String store = r.getStore().getId();
+        Deque<String> q = queued.get(store);
+        if (q == null) {
+            q = new ArrayDeque<String>();
+            queued.put(store, q);
+        }
+        q.add(r.getId());
+        dispatch(store);
+    }
+
+    /**
+     * Hands resources of a store to the pool, up to the per store limit.
+     */
+    void dispatch(final String store) {
+        Deque<String> q = queued.get(store);
+        while (q != null && !q.isEmpty() && running(store) < perStore) {
+            final String id = q.poll();
+            running.put(store, running(store) + 1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        compute(id);
+                    }
+                    finally {
+                        completed(store, id);
+                    }
+                }
+            });
+        }
+        if (q != null && q.isEmpty()) {
+            queued.remove(store);
+        }
+    }
+
+    int running(String store) {
+        Integer n = running.get(store);
+        return n != null ? n : 0;
+    }
+
+    synchronized void completed(String store, String id) {
+        int n = running(store) - 1;
+        if (n > 0) {
+            running.put(store, n);
+        }
+        else {
+            running.remove(store);
+        }
+        scheduled.remove(id);
+        dispatch(store);
+    }
+
+    void compute(String id) {
+        Catalog cat = geoServer.getCatalog();
+        ResourceInfo r = cat.getResource(id, ResourceInfo.class);
+        if (r == null || USER.equals(source(r))) {
+            return;
+        }
+
+        boolean user = r.getMetadata() != null && USER.equals(r.getMetadata().get(SOURCE));
+        try {
+            CatalogBuilder cb = builder(cat);
+            if (user) {
+                // complete the bounds set by the user, keeping what was set
+                ReferencedEnvelope nativeBounds = r.getNativeBoundingBox();
+                if (nativeBounds == null) {
+                    nativeBounds = cb.getNativeBounds(r);
+                    r.setNativeBoundingBox(nativeBounds);
+                }
+                if (r.getLatLonBoundingBox() == null && nativeBounds != null) {
+                    r.setLatLonBoundingBox(cb.getLatLonBounds(nativeBounds, r.getCRS()));
+                }
+            }
+            else {
+                cb.setupBounds(r);
+            }
+            if (r.getNativeBoundingBox() == null || r.getLatLonBoundingBox() == null) {
+                throw new IllegalStateException("No bounds for " + r.prefixedName());
+            }
+
+            source(r, user ? USER : COMPUTED);
+            cat.save(r);
+            computed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            LOG.log(Level.WARNING, "Unable to compute bounds of " + r.prefixedName(), e);
+
+            // saved so that the failure is reported rather than pending forever, and is not rescheduled
+            if (r.getMetadata() != null) {
+                r.getMetadata().put(ERROR, Boolean.TRUE);
+                try {
+                    cat.save(r);
+                } catch (Exception ex) {
+                    LOG.log(Level.FINE, "Unable to record failed bounds of " + r.prefixedName(), ex);
+                }
+            }
+        }
+    }
+
+    CatalogBuilder builder(Catalog cat) {
+        return new CatalogBuilder(cat);
+    }
+
+    /**
+     * Number of resources waiting for or having their bounds computed.
+     */
+    public synchronized int pending() {
+        return scheduled.size();
+    }
+
+    /**
+     * Number of resources whose bounds were computed.
+     */
+    public long computed() {
+        return computed.get();
+    }
+
+    /**
+     * Number of resources whose bounds could not be computed.
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        if (event.getSource() instanceof ResourceInfo) {
+            ResourceInfo r = (ResourceInfo) event.getSource();
+            if (PENDING.equals(source(r))) {
+                schedule(r);
+            }
+        }
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        if (!(event.getSource() instanceof ResourceInfo)) {
+            return;
+        }
+
+        boolean crs = false;
+        for (String prop : event.getPropertyNames()) {
+            if ("nativeBoundingBox".equalsIgnoreCase(prop) || "latLonBoundingBox".equalsIgnoreCase(prop)) {
+                // bounds set along with the crs
+                return;
+            }
+            crs = crs || "srs".equalsIgnoreCase(prop) || "nativeCRS".equalsIgnoreCase(prop)
+                || "projectionPolicy".equalsIgnoreCase(prop);
+        }
+        if (crs) {
+            synchronized (this) {
+                stale.add(((ResourceInfo) event.getSource()).getId());
+            }
+        }
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        if (!(event.getSource() instanceof ResourceInfo)) {
+            return;
+        }
+
+        ResourceInfo r = (ResourceInfo) event.getSource();
+        boolean recompute;
+        synchronized (this) {
+            recompute = stale.remove(r.getId());
+        }
+        if ((recompute && !USER.equals(source(r))) || PENDING.equals(source(r))) {
+            schedule(r);
+        }
+    }
+
+    @Override
+    public synchronized void reloaded() {
+        if (executor != null) {
+            scan();
+        }
+    }
+}
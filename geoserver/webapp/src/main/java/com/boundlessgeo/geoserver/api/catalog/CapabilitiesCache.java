@@ -0,0 +1,462 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.WMSStoreInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.util.logging.Logging;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Cache of the layers advertised by the capabilities of cascaded WMS stores.
+ * <p>
+ * The capabilities document of a store is downloaded and parsed once, keeping only the layer names, and
+ * revalidated in the background every <tt>SUITE_CAPABILITIES_REFRESH</tt> seconds, 300 by default, 0 to turn
+ * it off. Revalidation is conditional, on the <tt>ETag</tt> and <tt>Last-Modified</tt> headers of the last
+ * response, so an unchanged document is neither downloaded nor parsed again. Requests are made through the
+ * {@link StoreAccess} breaker of the store, and the last known layers are kept while the service is down.
+ * </p>
+ * <p>
+ * The request is built from the capabilities url of the store as GeoTools builds it for the store's
+ * <tt>WebMapServer</tt>, see {@link #request(String)}, and made with the HTTP settings of the store: its
+ * timeouts, credentials and gzip compression. The GeoTools HTTP clients can not make conditional requests, so
+ * the request is made directly, proxies are configured through the usual JVM properties as for those clients.
+ * A response that is not a capabilities document, such as a service exception report, fails the request.
+ * </p>
+ * <p>
+ * The cache holds up to <tt>SUITE_CAPABILITIES_MAX_LAYERS</tt> layer names across stores, 100000 by default,
+ * evicting the least recently used stores first. The entry of a store is evicted when the store is modified
+ * or removed, and all of them when the catalog is reloaded.
+ * </p>
+ */
+@Component
+public class CapabilitiesCache implements CatalogListener, InitializingBean, DisposableBean {
+
+    static Logger LOG = Logging.getLogger(CapabilitiesCache.class);
+
+    public static final String REFRESH = "SUITE_CAPABILITIES_REFRESH";
+    public static final String MAX_LAYERS = "SUITE_CAPABILITIES_MAX_LAYERS";
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** version asked for */
+    static final String VERSION = "1.3.0";
+
+    /**
+     * Layers of a capabilities document, along with the validators of the response.
+     */
+    static class Entry {
+        final List<String> layers;
+        final String etag;
+        final String lastModified;
+
+        Entry(List<String> layers, String etag, String lastModified) {
+            this.layers = Collections.unmodifiableList(layers);
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    final GeoServer geoServer;
+    final StoreAccess access;
+
+    /** layers by store id */
+    final Cache<String,Entry> entries;
+
+    ScheduledExecutorService refresher;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong revalidated = new AtomicLong();
+
+    @Autowired
+    public CapabilitiesCache(GeoServer geoServer, StoreAccess access) {
+        this.geoServer = geoServer;
+        this.access = access;
+        entries = CacheBuilder.newBuilder()
+            .maximumWeight(property(MAX_LAYERS, 100000))
+            .weigher(new Weigher<String,Entry>() {
+                @Override
+                public int weigh(String key, Entry e) {
+                    return Math.max(1, e.layers.size());
+                }
+            })
+            .build();
+    }
+
+    long property(String name, long def) {
+        String value = GeoServerExtensions.getProperty(name);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + name + ": " + value);
+            }
+        }
+        return def;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        geoServer.getCatalog().addListener(this);
+
+        long period = property(REFRESH, 300);
+        if (period > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("suite-capabilities-%d").setDaemon(true).build());
+            refresher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (Exception e) {
+                        LOG.log(Level.WARNING, "Error refreshing capabilities", e);
+                    }
+                }
+            }, period, period, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Names of the layers advertised by a store, from the cache if possible.
+     * <p>
+     * Concurrent callers for the same store wait for a single download. Stores that are not yet part of the
+     * catalog are downloaded every time.
+     * </p>
+     */
+    public List<String> layers(final WMSStoreInfo store) throws IOException {
+        if (store.getId() == null) {
+            return fetch(store, null).layers;
+        }
+
+        final boolean[] loaded = new boolean[1];
+        try {
+            Entry e = entries.get(store.getId(), new Callable<Entry>() {
+                @Override
+                public Entry call() throws Exception {
+                    loaded[0] = true;
+                    return fetch(store, null);
+                }
+            });
+            (loaded[0] ? misses : hits).incrementAndGet();
+            return e.layers;
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Revalidates the cached capabilities, keeping the last known layers of services that fail to answer.
+     */
+    public void refresh() {
+        for (String id : entries.asMap().keySet()) {
+            WMSStoreInfo store = geoServer.getCatalog().getStore(id, WMSStoreInfo.class);
+            if (store == null || !store.isEnabled()) {
+                entries.invalidate(id);
+                continue;
+            }
+
+            try {
+                revalidate(store);
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Unable to revalidate capabilities of " + store.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Revalidates the capabilities of a store, downloading them only if they changed.
+     *
+     * @return The names of the layers advertised by the store.
+     */
+    public List<String> revalidate(WMSStoreInfo store) throws IOException {
+        Entry prev = store.getId() != null ? entries.getIfPresent(store.getId()) : null;
+        Entry e = fetch(store, prev);
+        if (e != prev && store.getId() != null) {
+            entries.put(store.getId(), e);
+        }
+        return e.layers;
+    }
+
+    /**
+     * Downloads and parses the capabilities of a store, unless unchanged since the previous entry.
+     *
+     * @return The new entry, or the previous one if the document has not changed.
+     */
+    Entry fetch(final WMSStoreInfo store, final Entry prev) throws IOException {
+        return access.call(store, new Callable<Entry>() {
+            @Override
+            public Entry call() throws Exception {
+                URLConnection conn = request(store.getCapabilitiesURL()).openConnection();
+                conn.setRequestProperty("Accept-Encoding", "gzip");
+                if (store.getConnectTimeout() > 0) {
+                    conn.setConnectTimeout(store.getConnectTimeout() * 1000);
+                }
+                if (store.getReadTimeout() > 0) {
+                    conn.setReadTimeout(store.getReadTimeout() * 1000);
+                }
+                if (store.getUsername() != null) {
+                    String auth = store.getUsername() + ":"
+                        + (store.getPassword() != null ? store.getPassword() : "");
+                    conn.setRequestProperty("Authorization",
+                        "Basic " + BaseEncoding.base64().encode(auth.getBytes(UTF8)));
+                }
+                if (prev != null && prev.etag != null) {
+                    conn.setRequestProperty("If-None-Match", prev.etag);
+                }
+                if (prev != null && prev.lastModified != null) {
+                    conn.setRequestProperty("If-Modified-Since", prev.lastModified);
+                }
+
+                if (conn instanceof HttpURLConnection) {
+                    int status = ((HttpURLConnection) conn).getResponseCode();
+                    if (status == HttpURLConnection.HTTP_NOT_MODIFIED && prev != null) {
+                        revalidated.incrementAndGet();
+                        return prev;
+                    }
+                    if (status >= 400) {
+                        throw new IOException("Capabilities request failed with status " + status);
+                    }
+                }
+
+                InputStream in = conn.getInputStream();
+                try {
+                    if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+                        in = new GZIPInputStream(in);
+                    }
+                    return new Entry(parse(in), conn.getHeaderField("ETag"), conn.getHeaderField("Last-Modified"));
+                }
+                finally {
+                    in.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * The GetCapabilities request for a capabilities url, as built by GeoTools.
+     * <p>
+     * The url is usually the one the store was created with, whose <tt>SERVICE</tt>, <tt>REQUEST</tt> and
+     * <tt>VERSION</tt> parameters are replaced, other parameters such as vendor ones are kept. The highest
+     * version is asked for, a server that does not support it answers with the highest version it supports.
+     * </p>
+     */
+    static URL request(String capabilitiesURL) throws IOException {
+        if (capabilitiesURL == null) {
+            throw new IOException("No capabilities url");
+        }
+
+        String base = capabilitiesURL;
+        String query = null;
+        int q = capabilitiesURL.indexOf('?');
+        if (q >= 0) {
+            base = capabilitiesURL.substring(0, q);
+            query = capabilitiesURL.substring(q + 1);
+        }
+
+        StringBuilder url = new StringBuilder(base).append('?');
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.isEmpty()) {
+                    continue;
+                }
+                int eq = param.indexOf('=');
+                String key = (eq >= 0 ? param.substring(0, eq) : param).trim();
+                if ("SERVICE".equalsIgnoreCase(key) || "REQUEST".equalsIgnoreCase(key)
+                    || "VERSION".equalsIgnoreCase(key) || "WMTVER".equalsIgnoreCase(key)) {
+                    continue;
+                }
+                url.append(param).append('&');
+            }
+        }
+        url.append("SERVICE=WMS&REQUEST=GetCapabilities&VERSION=").append(VERSION);
+        return new URL(url.toString());
+    }
+
+    /**
+     * Parses the names of the named layers of a capabilities document, in document order.
+     *
+     * @throws IOException If the document is not a WMS capabilities document, with the message of a service
+     *   exception report.
+     */
+    static List<String> parse(InputStream in) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        List<String> layers = new ArrayList<String>();
+        try {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try {
+                Deque<String> path = new ArrayDeque<String>();
+                while (xml.hasNext()) {
+                    int event = xml.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = xml.getLocalName();
+                        if (path.isEmpty()) {
+                            root(xml);
+                        }
+                        if ("Name".equals(name) && "Layer".equals(path.peek())) {
+                            layers.add(xml.getElementText().trim());
+                            continue;
+                        }
+                        path.push(name);
+                    }
+                    else if (event == XMLStreamConstants.END_ELEMENT) {
+                        path.pop();
+                    }
+                }
+            }
+            finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid capabilities document", e);
+        }
+        return layers;
+    }
+
+    /**
+     * Checks the root element of a capabilities document, <tt>WMS_Capabilities</tt> from 1.3.0 on and
+     * <tt>WMT_MS_Capabilities</tt> before.
+     */
+    static void root(XMLStreamReader xml) throws XMLStreamException, IOException {
+        String root = xml.getLocalName();
+        if ("WMS_Capabilities".equals(root) || "WMT_MS_Capabilities".equals(root)) {
+            return;
+        }
+        if ("ServiceExceptionReport".equals(root) || "ExceptionReport".equals(root)) {
+            // the text of the first exception
+            StringBuilder message = new StringBuilder();
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT && message.length() == 0
+                    && ("ServiceException".equals(xml.getLocalName())
+                        || "ExceptionText".equals(xml.getLocalName()))) {
+                    message.append(xml.getElementText().trim());
+                }
+            }
+            throw new IOException("Capabilities request failed: "
+                + (message.length() > 0 ? message : "service exception"));
+        }
+        throw new IOException("Not a WMS capabilities document: " + root);
+    }
+
+    /**
+     * Number of layer lists answered from the cache.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of layer lists that had to be downloaded.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of background revalidations that found the capabilities unchanged.
+     */
+    public long revalidated() {
+        return revalidated.get();
+    }
+
+    /**
+     * Number of stores cached.
+     */
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * Empties the cache, the counters are kept.
+     */
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    void changed(Object info) {
+        if (info instanceof WMSStoreInfo && ((WMSStoreInfo) info).getId() != null) {
+            entries.invalidate(((WMSStoreInfo) info).getId());
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // evict again, a concurrent read may have cached the layers in between
+        changed(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        clear();
+    }
+}
@@ -0,0 +1,258 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import static org.geoserver.catalog.Predicates.acceptAll;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.LayerGroupInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.util.logging.Logging;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Counts of workspaces, layers and maps, maintained from catalog events.
+ * <p>
+ * A count is computed from the catalog the first time it is asked for, and then kept up to date as objects are
+ * added and removed. A count computed while the catalog changed is not kept, and computed again when next asked
+ * for. Every count is recomputed periodically to catch any drift, every <tt>SUITE_COUNTS_RECONCILE</tt> seconds,
+ * 600 by default, 0 to turn it off.
+ * </p>
+ * <p>
+ * Counts are computed from the raw catalog, whatever the user, and shared by all users. They are meant for
+ * administrative use such as the server info. Lists visible to a user count through the secured catalog, which
+ * is why there are no per workspace counts.
+ * </p>
+ */
+@Component
+public class CatalogCounts implements CatalogListener, InitializingBean, DisposableBean {
+
+    static Logger LOG = Logging.getLogger(CatalogCounts.class);
+
+    public static final String RECONCILE = "SUITE_COUNTS_RECONCILE";
+
+    /**
+     * Number of objects, as of the last event.
+     */
+    public static class Count {
+
+        final AtomicInteger value = new AtomicInteger();
+        volatile boolean exact;
+
+        /**
+         * The number of objects.
+         */
+        public int value() {
+            return value.get();
+        }
+
+        /**
+         * Whether the count matches the catalog, rather than an estimate due to be reconciled.
+         */
+        public boolean exact() {
+            return exact;
+        }
+    }
+
+    static final String WORKSPACES = "workspaces";
+    static final String LAYERS = "layers";
+    static final String MAPS = "maps";
+
+    final GeoServer geoServer;
+
+    /** counts by type */
+    final ConcurrentMap<String,Count> counts = new ConcurrentHashMap<String,Count>();
+
+    /** bumped by every event, to tell counts computed while the catalog changed */
+    final AtomicLong events = new AtomicLong();
+
+    ScheduledExecutorService reconciler;
+
+    @Autowired
+    public CatalogCounts(GeoServer geoServer) {
+        this.geoServer = geoServer;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        geoServer.getCatalog().addListener(this);
+
+        long period = 600;
+        String value = GeoServerExtensions.getProperty(RECONCILE);
+        if (value != null) {
+            try {
+                period = Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + RECONCILE + ": " + value);
+            }
+        }
+        if (period > 0) {
+            reconciler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("suite-counts-%d").setDaemon(true).build());
+            reconciler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        reconcile();
+                    } catch (Exception e) {
+                        LOG.log(Level.WARNING, "Error reconciling catalog counts", e);
+                    }
+                }
+            }, period, period, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    /**
+     * Number of workspaces.
+     */
+    public Count workspaces() {
+        return count(WORKSPACES);
+    }
+
+    /**
+     * Number of layers.
+     */
+    public Count layers() {
+        return count(LAYERS);
+    }
+
+    /**
+     * Number of maps, global ones included.
+     */
+    public Count maps() {
+        return count(MAPS);
+    }
+
+    Count count(String key) {
+        Count count = counts.get(key);
+        if (count != null) {
+            return count;
+        }
+
+        count = new Count();
+        long seq = events.get();
+        count.value.set(compute(key));
+        count.exact = seq == events.get();
+        if (!count.exact) {
+            // may have missed an event, answered but not kept
+            return count;
+        }
+
+        Count prev = counts.putIfAbsent(key, count);
+        return prev != null ? prev : count;
+    }
+
+    /**
+     * Recomputes every count from the catalog.
+     */
+    public void reconcile() {
+        for (Map.Entry<String,Count> e : counts.entrySet()) {
+            long seq = events.get();
+            int value = compute(e.getKey());
+
+            Count count = e.getValue();
+            count.value.set(value);
+            count.exact = seq == events.get();
+            if (!count.exact) {
+                counts.remove(e.getKey(), count);
+            }
+        }
+    }
+
+    /**
+     * The catalog counts are computed from, unsecured if available.
+     */
+    Catalog catalog() {
+        Catalog raw = (Catalog) GeoServerExtensions.bean("rawCatalog");
+        return raw != null ? raw : geoServer.getCatalog();
+    }
+
+    int compute(String type) {
+        Catalog cat = catalog();
+        if (WORKSPACES.equals(type)) {
+            return cat.count(WorkspaceInfo.class, acceptAll());
+        }
+        if (LAYERS.equals(type)) {
+            return cat.count(LayerInfo.class, acceptAll());
+        }
+        return cat.count(LayerGroupInfo.class, acceptAll());
+    }
+
+    void add(String key, int delta) {
+        Count count = counts.get(key);
+        if (count != null) {
+            count.value.addAndGet(delta);
+        }
+    }
+
+    void changed(CatalogInfo info, int delta) {
+        events.incrementAndGet();
+        if (info instanceof WorkspaceInfo) {
+            add(WORKSPACES, delta);
+        }
+        else if (info instanceof LayerInfo) {
+            add(LAYERS, delta);
+        }
+        else if (info instanceof LayerGroupInfo) {
+            add(MAPS, delta);
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        changed(event.getSource(), 1);
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        changed(event.getSource(), -1);
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void reloaded() {
+        events.incrementAndGet();
+        counts.clear();
+    }
+}
@@ -0,0 +1,197 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.LayerGroupInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.StyleInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tracks modifications of the catalog, overall and per workspace.
+ * <p>
+ * Versions come from a single sequence seeded with the startup time, so they only ever increase and are
+ * unlikely to repeat across restarts. The version of a workspace is bumped by changes to the stores, resources,
+ * layers, maps and styles it contains. Changes that can not be attributed to a single workspace, such as adding
+ * or renaming a workspace, changing the default workspace or reloading the catalog, bump every workspace.
+ * </p>
+ * <p>
+ * All versions are held in a single immutable snapshot, replaced by compare and set, so concurrent changes never
+ * take a version back.
+ * </p>
+ */
+@Component
+public class CatalogVersions implements CatalogListener, InitializingBean {
+
+    final GeoServer geoServer;
+
+    /**
+     * Versions at a point in time.
+     */
+    static class Snapshot {
+        /** last change of any kind */
+        final long last;
+
+        /** last change affecting all workspaces */
+        final long base;
+
+        /** last change per workspace, since the base */
+        final ImmutableMap<String,Long> workspaces;
+
+        Snapshot(long last, long base, ImmutableMap<String,Long> workspaces) {
+            this.last = last;
+            this.base = base;
+            this.workspaces = workspaces;
+        }
+
+        /**
+         * The snapshot after a change, versions that are already newer are kept.
+         */
+        Snapshot change(String wsName, long v) {
+            if (wsName == null) {
+                return v > base ? new Snapshot(Math.max(last, v), v, ImmutableMap.<String,Long>of()) : this;
+            }
+
+            Long prev = workspaces.get(wsName);
+            if (v <= base || (prev != null && v <= prev)) {
+                return v > last ? new Snapshot(v, base, workspaces) : this;
+            }
+            ImmutableMap.Builder<String,Long> b = ImmutableMap.builder();
+            for (Map.Entry<String,Long> e : workspaces.entrySet()) {
+                if (!e.getKey().equals(wsName)) {
+                    b.put(e);
+                }
+            }
+            return new Snapshot(Math.max(last, v), base, b.put(wsName, v).build());
+        }
+    }
+
+    final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+
+    final AtomicReference<Snapshot> versions;
+
+    @Autowired
+    public CatalogVersions(GeoServer geoServer) {
+        this.geoServer = geoServer;
+        long v = sequence.get();
+        versions = new AtomicReference<Snapshot>(new Snapshot(v, v, ImmutableMap.<String,Long>of()));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        geoServer.getCatalog().addListener(this);
+    }
+
+    /**
+     * Version of the catalog as a whole.
+     */
+    public long version() {
+        return versions.get().last;
+    }
+
+    /**
+     * Version of the specified workspace.
+     */
+    public long version(String wsName) {
+        Snapshot s = versions.get();
+        Long v = wsName != null ? s.workspaces.get(wsName) : null;
+        return v != null ? Math.max(v, s.base) : s.base;
+    }
+
+    void changed(CatalogInfo info) {
+        long v = sequence.incrementAndGet();
+        String wsName = workspace(info);
+
+        Snapshot prev, next;
+        do {
+            prev = versions.get();
+            next = prev.change(wsName, v);
+        }
+        while (next != prev && !versions.compareAndSet(prev, next));
+    }
+
+    /**
+     * Name of the single workspace affected by a change to the object, or <tt>null</tt> if the change may
+     * affect any workspace.
+     */
+    String workspace(CatalogInfo info) {
+        if (info instanceof StoreInfo) {
+            return name(((StoreInfo) info).getWorkspace());
+        }
+        if (info instanceof ResourceInfo) {
+            return prefix(((ResourceInfo) info).getNamespace());
+        }
+        if (info instanceof LayerInfo) {
+            ResourceInfo r = ((LayerInfo) info).getResource();
+            return r != null ? prefix(r.getNamespace()) : null;
+        }
+        if (info instanceof LayerGroupInfo) {
+            return name(((LayerGroupInfo) info).getWorkspace());
+        }
+        if (info instanceof StyleInfo) {
+            return name(((StyleInfo) info).getWorkspace());
+        }
+        // workspaces, namespaces, the catalog itself
+        return null;
+    }
+
+    String name(WorkspaceInfo ws) {
+        return ws != null ? ws.getName() : null;
+    }
+
+    String prefix(NamespaceInfo ns) {
+        return ns != null ? ns.getPrefix() : null;
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        // moving an object to another workspace changes the old one as well
+        for (String prop : event.getPropertyNames()) {
+            if ("workspace".equalsIgnoreCase(prop) || "namespace".equalsIgnoreCase(prop)) {
+                changed(event.getSource());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        changed(null);
+    }
+}
@@ -0,0 +1,258 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import static org.geoserver.catalog.Predicates.acceptAll;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CoverageInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.util.CloseableIterator;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.util.logging.Logging;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Resolves the feature types and coverage readers of all enabled layers in the background once the application
+ * has started, so the first requests after a restart don't wait for every store to be opened and described.
+ * <p>
+ * Layers are resolved on a small thread pool, those of the default workspace first and then the other workspaces
+ * in name order. Each layer is resolved through {@link StoreAccess}, so a store that hangs holds up a thread
+ * of the warm up no longer than the store timeout, and once the breaker of the store opens its remaining layers
+ * fail right away. The warm up is turned off by setting the <tt>SUITE_WARMUP</tt> property to <tt>false</tt>,
+ * and the number of threads set with <tt>SUITE_WARMUP_THREADS</tt>. Both are looked up as system properties,
+ * servlet context parameters or environment variables.
+ * </p>
+ */
+@Component
+public class CatalogWarmUp implements ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+
+    static Logger LOG = Logging.getLogger(CatalogWarmUp.class);
+
+    public static final String ENABLED = "SUITE_WARMUP";
+
+    public static final String THREADS = "SUITE_WARMUP_THREADS";
+
+    /** default maximum number of threads */
+    public static final int MAX_THREADS = 4;
+
+    public static enum State {
+        PENDING, RUNNING, DONE, DISABLED
+    }
+
+    final GeoServer geoServer;
+    final StoreAccess access;
+
+    ExecutorService executor;
+
+    volatile State state = State.PENDING;
+    volatile long started;
+    volatile long finished;
+
+    final AtomicInteger total = new AtomicInteger();
+    final AtomicInteger completed = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+
+    @Autowired
+    public CatalogWarmUp(GeoServer geoServer, StoreAccess access) {
+        this.geoServer = geoServer;
+        this.access = access;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        // also received for the refresh of child contexts
+        if (state != State.PENDING) {
+            return;
+        }
+        if ("false".equalsIgnoreCase(GeoServerExtensions.getProperty(ENABLED))) {
+            state = State.DISABLED;
+            return;
+        }
+        start(threads());
+    }
+
+    int threads() {
+        String threads = GeoServerExtensions.getProperty(THREADS);
+        if (threads != null) {
+            try {
+                return Math.max(1, Integer.parseInt(threads.trim()));
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + THREADS + ": " + threads);
+            }
+        }
+        return Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Starts resolving the layers, unless already started.
+     */
+    public synchronized void start(int threads) {
+        if (executor != null) {
+            return;
+        }
+
+        List<ResourceInfo> resources = resources();
+        total.set(resources.size());
+        started = System.currentTimeMillis();
+        state = State.RUNNING;
+
+        executor = Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setNameFormat("suite-warmup-%d").setDaemon(true).build());
+        for (final ResourceInfo r : resources) {
+            // the queue of the pool is first in first out, so resources are resolved in order
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    warm(r);
+                }
+            });
+        }
+        executor.shutdown();
+
+        if (resources.isEmpty()) {
+            done();
+        }
+        LOG.info(String.format("Warming up %d layers on %d threads", resources.size(), threads));
+    }
+
+    /**
+     * Resources of the enabled layers, those of the default workspace first and then by workspace name.
+     */
+    List<ResourceInfo> resources() {
+        Catalog cat = geoServer.getCatalog();
+        WorkspaceInfo def = cat.getDefaultWorkspace();
+
+        List<ResourceInfo> first = new ArrayList<ResourceInfo>();
+        Map<String,List<ResourceInfo>> byWorkspace = new TreeMap<String,List<ResourceInfo>>();
+
+        CloseableIterator<LayerInfo> it = cat.list(LayerInfo.class, acceptAll());
+        try {
+            while (it.hasNext()) {
+                LayerInfo l = it.next();
+                ResourceInfo r = l.getResource();
+                if (!l.isEnabled() || r == null || !r.isEnabled()
+                    || !(r instanceof FeatureTypeInfo || r instanceof CoverageInfo)) {
+                    continue;
+                }
+
+                String wsName = r.getNamespace() != null ? r.getNamespace().getPrefix() : "";
+                if (def != null && def.getName().equals(wsName)) {
+                    first.add(r);
+                    continue;
+                }
+
+                List<ResourceInfo> list = byWorkspace.get(wsName);
+                if (list == null) {
+                    list = new ArrayList<ResourceInfo>();
+                    byWorkspace.put(wsName, list);
+                }
+                list.add(r);
+            }
+        }
+        finally {
+            it.close();
+        }
+
+        for (List<ResourceInfo> list : byWorkspace.values()) {
+            first.addAll(list);
+        }
+        return first;
+    }
+
+    void warm(final ResourceInfo r) {
+        try {
+            access.call(r.getStore(), new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    if (r instanceof FeatureTypeInfo) {
+                        return ((FeatureTypeInfo) r).getFeatureType();
+                    }
+                    return ((CoverageInfo) r).getGridCoverageReader(null, null);
+                }
+            });
+        } catch (Throwable e) {
+            failed.incrementAndGet();
+            LOG.log(Level.FINE, "Unable to warm up " + r.prefixedName(), e);
+        }
+        finally {
+            if (completed.incrementAndGet() == total.get()) {
+                done();
+            }
+        }
+    }
+
+    void done() {
+        finished = System.currentTimeMillis();
+        state = State.DONE;
+        LOG.info(String.format("Warmed up %d layers in %d ms, %d failed", total.get(), finished - started,
+            failed.get()));
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * State of the warm up.
+     */
+    public State state() {
+        return state;
+    }
+
+    /**
+     * Number of layers to resolve.
+     */
+    public int total() {
+        return total.get();
+    }
+
+    /**
+     * Number of layers resolved so far, including the ones that failed.
+     */
+    public int completed() {
+        return completed.get();
+    }
+
+    /**
+     * Number of layers that failed to resolve.
+     */
+    public int failed() {
+        return failed.get();
+    }
+
+    /**
+     * Time spent so far in milliseconds, or in total once done.
+     */
+    public long elapsed() {
+        if (started == 0) {
+            return 0;
+        }
+        return (state == State.DONE ? finished : System.currentTimeMillis()) - started;
+    }
+}
@@ -0,0 +1,206 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import static org.geoserver.catalog.Predicates.and;
+import static org.geoserver.catalog.Predicates.equal;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.catalog.util.CloseableIterator;
+import org.geoserver.config.GeoServer;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableListMultimap;
+
+/**
+ * Index of the resources published from each store, by native name.
+ * <p>
+ * The index of a store is built with a single catalog query for the resources of the store in its workspace,
+ * however many resources the store serves, and kept until a resource of the store is added, modified or
+ * removed, the store is modified or removed, a workspace or namespace is modified, or the catalog reloaded.
+ * </p>
+ */
+@Component
+public class PublishedIndex implements CatalogListener, InitializingBean {
+
+    /** default maximum number of stores */
+    public static final int MAX_SIZE = 500;
+
+    final GeoServer geoServer;
+
+    /** resources by store id, and native name */
+    final Cache<String,ImmutableListMultimap<String,ResourceInfo>> index;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public PublishedIndex(GeoServer geoServer) {
+        this(geoServer, MAX_SIZE);
+    }
+
+    public PublishedIndex(GeoServer geoServer, int maxSize) {
+        this.geoServer = geoServer;
+        index = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        geoServer.getCatalog().addListener(this);
+    }
+
+    /**
+     * The resources published from a store.
+     */
+    public List<ResourceInfo> resources(StoreInfo store) {
+        return index(store).values().asList();
+    }
+
+    /**
+     * The resources published from a store for the specified native name, usually one.
+     */
+    public List<ResourceInfo> resources(StoreInfo store, String nativeName) {
+        return index(store).get(nativeName);
+    }
+
+    ImmutableListMultimap<String,ResourceInfo> index(final StoreInfo store) {
+        if (store.getId() == null) {
+            return build(store);
+        }
+
+        final boolean[] built = new boolean[1];
+        try {
+            ImmutableListMultimap<String,ResourceInfo> i = index.get(store.getId(),
+                new Callable<ImmutableListMultimap<String,ResourceInfo>>() {
+                    @Override
+                    public ImmutableListMultimap<String,ResourceInfo> call() {
+                        built[0] = true;
+                        return build(store);
+                    }
+                });
+            (built[0] ? misses : hits).incrementAndGet();
+            return i;
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    ImmutableListMultimap<String,ResourceInfo> build(StoreInfo store) {
+        ImmutableListMultimap.Builder<String,ResourceInfo> b = ImmutableListMultimap.builder();
+        if (store.getId() == null) {
+            return b.build();
+        }
+
+        try (
+            CloseableIterator<ResourceInfo> it = geoServer.getCatalog().list(ResourceInfo.class,
+                and(equal("store.id", store.getId()), equal("namespace.prefix", store.getWorkspace().getName())));
+        ) {
+            while (it.hasNext()) {
+                ResourceInfo r = it.next();
+                String nativeName = r.getNativeName() != null ? r.getNativeName() : r.getName();
+                if (nativeName != null) {
+                    b.put(nativeName, r);
+                }
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * Evicts the index of a store.
+     */
+    public void evict(StoreInfo store) {
+        if (store != null && store.getId() != null) {
+            index.invalidate(store.getId());
+        }
+    }
+
+    /**
+     * Number of lookups answered from an existing index.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of indexes built.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of stores indexed.
+     */
+    public long size() {
+        return index.size();
+    }
+
+    /**
+     * Drops every index, the counters are kept.
+     */
+    public void clear() {
+        index.invalidateAll();
+    }
+
+    void changed(CatalogInfo info) {
+        if (info instanceof ResourceInfo) {
+            evict(((ResourceInfo) info).getStore());
+        }
+        else if (info instanceof StoreInfo) {
+            evict((StoreInfo) info);
+        }
+        else if (info instanceof WorkspaceInfo || info instanceof NamespaceInfo) {
+            clear();
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        if (event.getSource() instanceof ResourceInfo) {
+            changed(event.getSource());
+        }
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // evict the new store of a moved resource, and again in case a concurrent read rebuilt the index
+        changed(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        clear();
+    }
+}
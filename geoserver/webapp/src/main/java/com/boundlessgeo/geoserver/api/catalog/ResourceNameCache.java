@@ -0,0 +1,208 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.util.logging.Logging;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the native names of the resources served by each store, the tables of a database or the coverages
+ * of a raster.
+ * <p>
+ * Names are cached by store id. Entries are evicted when the store is modified or removed, when one of its
+ * resources is published or removed, since publishing may have created the table, and all of them when the
+ * catalog is reloaded. Since resources may also be created outside of GeoServer, entries expire
+ * <tt>SUITE_RESOURCES_TTL</tt> seconds after being listed, 300 by default.
+ * </p>
+ */
+@Component
+public class ResourceNameCache implements CatalogListener, InitializingBean {
+
+    static Logger LOG = Logging.getLogger(ResourceNameCache.class);
+
+    public static final String TTL = "SUITE_RESOURCES_TTL";
+
+    /** default maximum number of stores */
+    public static final int MAX_SIZE = 500;
+
+    final GeoServer geoServer;
+
+    final Cache<String,List<String>> names;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public ResourceNameCache(GeoServer geoServer) {
+        this(geoServer, MAX_SIZE, ttl());
+    }
+
+    public ResourceNameCache(GeoServer geoServer, int maxSize, long ttl) {
+        this.geoServer = geoServer;
+        names = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+    }
+
+    static long ttl() {
+        String value = GeoServerExtensions.getProperty(TTL);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + TTL + ": " + value);
+            }
+        }
+        return 300;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        geoServer.getCatalog().addListener(this);
+    }
+
+    /**
+     * Native names of the resources of a store, from the cache if possible.
+     * <p>
+     * On a miss the names are listed by the loader, concurrent callers for the same store wait for a single
+     * listing. Stores that are not yet part of the catalog are listed every time.
+     * </p>
+     * @param store The store.
+     * @param loader Lists the names from the store.
+     *
+     * @return The names, unmodifiable.
+     */
+    public List<String> names(StoreInfo store, final Callable<List<String>> loader) throws IOException {
+        if (store.getId() == null) {
+            return list(loader);
+        }
+
+        final boolean[] loaded = new boolean[1];
+        try {
+            List<String> list = names.get(store.getId(), new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws Exception {
+                    loaded[0] = true;
+                    return list(loader);
+                }
+            });
+            (loaded[0] ? misses : hits).incrementAndGet();
+            return list;
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    List<String> list(Callable<List<String>> loader) throws IOException {
+        try {
+            return Collections.unmodifiableList(loader.call());
+        } catch (Exception e) {
+            Throwables.propagateIfPossible(e, IOException.class);
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Evicts the names of a store.
+     */
+    public void evict(StoreInfo store) {
+        if (store != null && store.getId() != null) {
+            names.invalidate(store.getId());
+        }
+    }
+
+    /**
+     * Number of listings answered from the cache.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of listings that had to be read from the store.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of stores cached.
+     */
+    public long size() {
+        return names.size();
+    }
+
+    /**
+     * Empties the cache, the counters are kept.
+     */
+    public void clear() {
+        names.invalidateAll();
+    }
+
+    void changed(CatalogInfo info) {
+        if (info instanceof StoreInfo) {
+            evict((StoreInfo) info);
+        }
+        else if (info instanceof ResourceInfo) {
+            evict(((ResourceInfo) info).getStore());
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        if (event.getSource() instanceof ResourceInfo) {
+            changed(event.getSource());
+        }
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        if (event.getSource() instanceof StoreInfo) {
+            changed(event.getSource());
+        }
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // evict again, a concurrent read may have cached the names in between
+        if (event.getSource() instanceof StoreInfo) {
+            changed(event.getSource());
+        }
+    }
+
+    @Override
+    public void reloaded() {
+        clear();
+    }
+}
@@ -0,0 +1,176 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.CoverageInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the encoded schemas of feature types and coverages, with and without details.
+ * <p>
+ * Schemas are cached fully encoded, by resource id, and copied into the projection requested by each caller.
+ * Entries are evicted when the resource is modified or removed, and all of them when a store is modified or
+ * removed, or the catalog reloaded, since the schemas served by a store depend on its connection parameters.
+ * </p>
+ */
+@Component
+public class SchemaCache implements CatalogListener, InitializingBean {
+
+    /** default maximum number of entries */
+    public static final int MAX_SIZE = 1000;
+
+    final GeoServer geoServer;
+
+    final Cache<String,JSONObj> schemas;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public SchemaCache(GeoServer geoServer) {
+        this(geoServer, MAX_SIZE);
+    }
+
+    public SchemaCache(GeoServer geoServer, int maxSize) {
+        this.geoServer = geoServer;
+        schemas = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        geoServer.getCatalog().addListener(this);
+    }
+
+    /**
+     * Encodes the schema of a resource into the specified object, from the cache if possible.
+     * <p>
+     * On a miss the encoder is called to encode the complete schema into a new object, which is cached unless
+     * it is <tt>null</tt>. Resources that are not yet part of the catalog are encoded every time.
+     * </p>
+     * @param schema Target object, carrying the requested projection.
+     * @param r The feature type or coverage.
+     * @param details Whether the schema includes attribute details.
+     * @param encoder Encodes the complete schema.
+     *
+     * @return The target object, or <tt>null</tt> if the encoder returned <tt>null</tt>.
+     */
+    public JSONObj schema(JSONObj schema, ResourceInfo r, boolean details, Supplier<JSONObj> encoder) {
+        String key = key(r, details);
+        JSONObj cached = key != null ? schemas.getIfPresent(key) : null;
+        if (cached != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+            JSONObj encoded = encoder.get();
+            if (encoded == null) {
+                return null;
+            }
+
+            // computes deferred values once, the cached copy is only ever read
+            cached = encoded.copyTo(new JSONObj());
+            if (key != null) {
+                schemas.put(key, cached);
+            }
+        }
+        return cached.copyTo(schema);
+    }
+
+    String key(ResourceInfo r, boolean details) {
+        return r.getId() != null ? r.getId() + (details ? ":details" : ":summary") : null;
+    }
+
+    /**
+     * Evicts the schemas of a resource.
+     */
+    public void evict(ResourceInfo r) {
+        String key = key(r, true);
+        if (key != null) {
+            schemas.invalidate(key);
+            schemas.invalidate(key(r, false));
+        }
+    }
+
+    /**
+     * Number of schemas answered from the cache.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of schemas that had to be encoded.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of schemas cached.
+     */
+    public long size() {
+        return schemas.size();
+    }
+
+    /**
+     * Empties the cache, the counters are kept.
+     */
+    public void clear() {
+        schemas.invalidateAll();
+    }
+
+    void changed(CatalogInfo info) {
+        if (info instanceof FeatureTypeInfo || info instanceof CoverageInfo) {
+            evict((ResourceInfo) info);
+        }
+        else if (info instanceof StoreInfo) {
+            clear();
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // evict again, a concurrent read may have cached the schema in between
+        changed(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        clear();
+    }
+}
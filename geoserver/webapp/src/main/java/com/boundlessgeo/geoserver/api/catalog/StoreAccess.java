@@ -0,0 +1,231 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CoverageStoreInfo;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.WMSStoreInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.data.DataAccess;
+import org.geotools.data.wms.WebMapServer;
+import org.geotools.util.NullProgressListener;
+import org.geotools.util.logging.Logging;
+import org.opengis.coverage.grid.GridCoverageReader;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.boundlessgeo.geoserver.util.CircuitBreaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Access to the data behind stores for the api, through a {@link CircuitBreaker} per store.
+ * <p>
+ * A store that hangs holds up a thread of a dedicated pool rather than the request, until the call times out
+ * after <tt>SUITE_STORE_TIMEOUT</tt> milliseconds, 30000 by default. After <tt>SUITE_STORE_FAILURES</tt>
+ * consecutive failures, 3 by default, calls to the store fail right away for <tt>SUITE_STORE_RETRY</tt>
+ * milliseconds, 30000 by default, before a single call probes it again. The breaker of a store is reset when
+ * the store is modified or removed, or the catalog reloaded.
+ * </p>
+ * <p>
+ * Stores that are not yet part of the catalog, being created, are only subject to the timeout.
+ * </p>
+ * <p>
+ * The pool runs at most 64 calls at a time, across stores. Calls beyond that are refused with
+ * {@link CircuitBreaker.SaturatedException} and counted by {@link #rejected()}, but not held against the
+ * store.
+ * </p>
+ */
+@Component
+public class StoreAccess implements CatalogListener, InitializingBean, DisposableBean {
+
+    static Logger LOG = Logging.getLogger(StoreAccess.class);
+
+    public static final String TIMEOUT = "SUITE_STORE_TIMEOUT";
+    public static final String FAILURES = "SUITE_STORE_FAILURES";
+    public static final String RETRY = "SUITE_STORE_RETRY";
+
+    /** maximum number of store calls in flight, hung ones included */
+    static final int MAX_THREADS = 64;
+
+    final GeoServer geoServer;
+
+    final long timeout;
+    final int failures;
+    final long retry;
+
+    final ThreadPoolExecutor executor;
+
+    /** breakers by store id */
+    final ConcurrentMap<String,CircuitBreaker> breakers = new ConcurrentHashMap<String,CircuitBreaker>();
+
+    final AtomicLong rejected = new AtomicLong();
+
+    @Autowired
+    public StoreAccess(GeoServer geoServer) {
+        this.geoServer = geoServer;
+        this.timeout = property(TIMEOUT, 30000);
+        this.failures = (int) property(FAILURES, 3);
+        this.retry = property(RETRY, 30000);
+
+        executor = new ThreadPoolExecutor(0, MAX_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+            new ThreadFactoryBuilder().setNameFormat("suite-store-%d").setDaemon(true).build());
+    }
+
+    long property(String name, long def) {
+        String value = GeoServerExtensions.getProperty(name);
+        if (value != null) {
+            try {
+                return Math.max(1, Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + name + ": " + value);
+            }
+        }
+        return def;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        geoServer.getCatalog().addListener(this);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Calls the data behind a store.
+     *
+     * @throws CircuitBreaker.OpenException If the store is failing, and calls to it are refused.
+     * @throws CircuitBreaker.SaturatedException If the pool is busy with calls to stores.
+     * @throws IOException If the call failed or timed out.
+     */
+    public <T> T call(StoreInfo store, Callable<T> call) throws IOException {
+        try {
+            return breaker(store).call(call);
+        } catch (CircuitBreaker.SaturatedException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Number of store calls in flight, hung ones included.
+     */
+    public int active() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Number of calls refused since the pool was busy.
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * The breaker of a store, created on demand.
+     */
+    public CircuitBreaker breaker(StoreInfo store) {
+        String name = store.getWorkspace() != null
+            ? store.getWorkspace().getName() + ":" + store.getName() : store.getName();
+        if (store.getId() == null) {
+            // a breaker of its own, forgotten along with the store
+            return new CircuitBreaker(name, executor, timeout, Integer.MAX_VALUE, retry);
+        }
+
+        CircuitBreaker breaker = breakers.get(store.getId());
+        if (breaker == null) {
+            breaker = new CircuitBreaker(name, executor, timeout, failures, retry);
+            CircuitBreaker prev = breakers.putIfAbsent(store.getId(), breaker);
+            breaker = prev != null ? prev : breaker;
+        }
+        return breaker;
+    }
+
+    /**
+     * The breaker of a store if it was accessed, <tt>null</tt> otherwise.
+     */
+    public CircuitBreaker existing(StoreInfo store) {
+        return store.getId() != null ? breakers.get(store.getId()) : null;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public DataAccess dataStore(final DataStoreInfo store) throws IOException {
+        return call(store, new Callable<DataAccess>() {
+            @Override
+            public DataAccess call() throws Exception {
+                return store.getDataStore(new NullProgressListener());
+            }
+        });
+    }
+
+    public GridCoverageReader coverageReader(final CoverageStoreInfo store) throws IOException {
+        return call(store, new Callable<GridCoverageReader>() {
+            @Override
+            public GridCoverageReader call() throws Exception {
+                return store.getGridCoverageReader(null, null);
+            }
+        });
+    }
+
+    public WebMapServer webMapServer(final WMSStoreInfo store) throws IOException {
+        return call(store, new Callable<WebMapServer>() {
+            @Override
+            public WebMapServer call() throws Exception {
+                return store.getWebMapServer(new NullProgressListener());
+            }
+        });
+    }
+
+    void reset(Object info) {
+        if (info instanceof StoreInfo && ((StoreInfo) info).getId() != null) {
+            breakers.remove(((StoreInfo) info).getId());
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        reset(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // connection parameters may have been fixed
+        reset(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        breakers.clear();
+    }
+}
@@ -0,0 +1,243 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.util.logging.Logging;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.boundlessgeo.geoserver.json.Fields;
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of encoded store details, by store and projection.
+ * <p>
+ * Details are cached fully resolved and copied out to each caller. Entries are evicted when the store is
+ * modified or removed, when one of its resources is added, modified or removed, and all of them when the
+ * catalog is reloaded. Since the details also reflect the data behind the store, such as its tables and the
+ * last connection error, entries expire <tt>SUITE_STORE_DETAILS_TTL</tt> seconds after the first projection
+ * of a store was cached, 60 by default.
+ * </p>
+ * <p>
+ * Details are encoded outside of the cache, and may be put after the store changed and its entries were
+ * evicted. Every eviction moves the store to a new version, callers take the version before encoding and
+ * details encoded for an older version are not cached.
+ * </p>
+ */
+@Component
+public class StoreDetailsCache implements CatalogListener, InitializingBean {
+
+    static Logger LOG = Logging.getLogger(StoreDetailsCache.class);
+
+    public static final String TTL = "SUITE_STORE_DETAILS_TTL";
+
+    /** default maximum number of stores */
+    public static final int MAX_SIZE = 200;
+
+    final GeoServer geoServer;
+
+    /** details by store id, and projection */
+    final Cache<String,ConcurrentMap<String,JSONObj>> details;
+
+    /** version of each store evicted since the last reload, kept for removed stores too, guarded by the cache */
+    final Map<String,Long> versions = new HashMap<String,Long>();
+
+    /** last version handed out, all stores are at least at the version of the last reload */
+    long last;
+    long reloaded;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public StoreDetailsCache(GeoServer geoServer) {
+        this(geoServer, MAX_SIZE, ttl());
+    }
+
+    public StoreDetailsCache(GeoServer geoServer, int maxSize, long ttl) {
+        this.geoServer = geoServer;
+        details = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+    }
+
+    static long ttl() {
+        String value = GeoServerExtensions.getProperty(TTL);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + TTL + ": " + value);
+            }
+        }
+        return 60;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        geoServer.getCatalog().addListener(this);
+    }
+
+    /**
+     * Looks up the details of a store in the specified projection.
+     *
+     * @return A copy of the cached details, or <tt>null</tt> if they are not cached.
+     */
+    public JSONObj get(StoreInfo store, Fields fields) {
+        ConcurrentMap<String,JSONObj> projections =
+            store.getId() != null ? details.getIfPresent(store.getId()) : null;
+        JSONObj cached = projections != null ? projections.get(fields.toString()) : null;
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.copyTo(new JSONObj().fields(fields));
+    }
+
+    /**
+     * The version of a store, to be taken before encoding its details.
+     */
+    public synchronized long version(StoreInfo store) {
+        Long v = store.getId() != null ? versions.get(store.getId()) : null;
+        return v != null ? v : reloaded;
+    }
+
+    /**
+     * Caches the details of a store, in the projection they were encoded with, unless the store changed since
+     * they were encoded.
+     * <p>
+     * The details must be resolved, the cache keeps a copy. Stores that are not yet part of the catalog are not
+     * cached.
+     * </p>
+     * @param version The version of the store taken before encoding, see {@link #version(StoreInfo)}.
+     *
+     * @return Whether the details were cached.
+     */
+    public boolean put(StoreInfo store, long version, JSONObj json) {
+        if (store.getId() == null) {
+            return false;
+        }
+
+        JSONObj copy = json.copyTo(new JSONObj());
+        synchronized (this) {
+            if (version(store) != version) {
+                return false;
+            }
+            try {
+                details.get(store.getId(), new Callable<ConcurrentMap<String,JSONObj>>() {
+                    @Override
+                    public ConcurrentMap<String,JSONObj> call() {
+                        return new ConcurrentHashMap<String,JSONObj>();
+                    }
+                }).put(json.fields().toString(), copy);
+            } catch (ExecutionException e) {
+                // creating the map does not fail
+                throw new IllegalStateException(e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evicts the details of a store, in every projection, and moves it to a new version.
+     */
+    public void evict(StoreInfo store) {
+        if (store != null && store.getId() != null) {
+            synchronized (this) {
+                versions.put(store.getId(), ++last);
+                details.invalidate(store.getId());
+            }
+        }
+    }
+
+    /**
+     * Number of details answered from the cache.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of details that had to be encoded.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of stores cached.
+     */
+    public long size() {
+        return details.size();
+    }
+
+    /**
+     * Empties the cache, the counters are kept.
+     */
+    public synchronized void clear() {
+        versions.clear();
+        reloaded = ++last;
+        details.invalidateAll();
+    }
+
+    void changed(CatalogInfo info) {
+        if (info instanceof StoreInfo) {
+            evict((StoreInfo) info);
+        }
+        else if (info instanceof ResourceInfo) {
+            evict(((ResourceInfo) info).getStore());
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        if (event.getSource() instanceof ResourceInfo) {
+            changed(event.getSource());
+        }
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        changed(event.getSource());
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // evict again, a concurrent read may have cached the details in between
+        changed(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        clear();
+    }
+}
@@ -0,0 +1,360 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CoverageStoreInfo;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.WMSStoreInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.platform.GeoServerResourceLoader;
+import org.geoserver.platform.resource.Files;
+import org.geotools.data.DataAccess;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.NullProgressListener;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.type.Name;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Probes every enabled store periodically in the background, recording its health.
+ * <p>
+ * Every <tt>SUITE_HEALTH_INTERVAL</tt> seconds, 300 by default, 0 to turn it off, each enabled store is probed
+ * once, at a random point within the first half of the interval so probes do not all hit at the same time.
+ * Probes run on a pool of <tt>SUITE_HEALTH_THREADS</tt> threads, 2 by default, a store is never probed twice
+ * at a time, and go through the {@link StoreAccess} breaker of the store, so they are bounded by its timeout
+ * and double as the probe of a half open breaker.
+ * </p>
+ * <p>
+ * Probes reach the data behind the store rather than the store and reader instances GeoServer caches: a
+ * connection of a database is borrowed and returned, other data stores read a feature of their first type,
+ * file based coverage stores check their file can still be read and cascaded WMS stores revalidate their
+ * capabilities. Coverage stores that are not file based are only probed through their cached reader, which
+ * may not notice the source is gone. The results are kept in memory, see {@link #health(StoreInfo)}, and
+ * reset when the store is modified.
+ * </p>
+ */
+@Component
+public class StoreHealth implements CatalogListener, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+
+    static Logger LOG = Logging.getLogger(StoreHealth.class);
+
+    public static final String INTERVAL = "SUITE_HEALTH_INTERVAL";
+    public static final String THREADS = "SUITE_HEALTH_THREADS";
+
+    /**
+     * Outcome of the probes of a store.
+     */
+    public static class Health {
+
+        Date lastProbe;
+        Date lastSuccess;
+        Date lastFailure;
+        long latency = -1;
+        int failures;
+        String error;
+
+        /**
+         * When the store was last probed.
+         */
+        public synchronized Date lastProbe() {
+            return lastProbe;
+        }
+
+        /**
+         * When a probe last succeeded, <tt>null</tt> if none did.
+         */
+        public synchronized Date lastSuccess() {
+            return lastSuccess;
+        }
+
+        /**
+         * When a probe last failed, <tt>null</tt> if none did.
+         */
+        public synchronized Date lastFailure() {
+            return lastFailure;
+        }
+
+        /**
+         * Time the last successful probe took to connect, in milliseconds, <tt>-1</tt> if none succeeded.
+         */
+        public synchronized long latency() {
+            return latency;
+        }
+
+        /**
+         * Number of consecutive failed probes.
+         */
+        public synchronized int failures() {
+            return failures;
+        }
+
+        /**
+         * Message of the last failure, <tt>null</tt> once a probe succeeds.
+         */
+        public synchronized String error() {
+            return error;
+        }
+
+        synchronized void succeeded(long latency) {
+            this.lastProbe = this.lastSuccess = new Date();
+            this.latency = latency;
+            this.failures = 0;
+            this.error = null;
+        }
+
+        synchronized void failed(Throwable e) {
+            this.lastProbe = this.lastFailure = new Date();
+            this.failures++;
+            this.error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+    }
+
+    final GeoServer geoServer;
+    final StoreAccess access;
+    final CapabilitiesCache capabilities;
+
+    final Random random = new Random();
+
+    ScheduledThreadPoolExecutor executor;
+
+    /** health by store id */
+    final ConcurrentMap<String,Health> health = new ConcurrentHashMap<String,Health>();
+
+    /** stores being probed, or due to be */
+    final Set<String> probing = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+
+    @Autowired
+    public StoreHealth(GeoServer geoServer, StoreAccess access, CapabilitiesCache capabilities) {
+        this.geoServer = geoServer;
+        this.access = access;
+        this.capabilities = capabilities;
+    }
+
+    long property(String name, long def) {
+        String value = GeoServerExtensions.getProperty(name);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + name + ": " + value);
+            }
+        }
+        return def;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        // also received for the refresh of child contexts
+        if (executor != null) {
+            return;
+        }
+        final long interval = property(INTERVAL, 300);
+        if (interval <= 0) {
+            return;
+        }
+
+        int threads = (int) Math.max(1, property(THREADS, 2));
+        executor = new ScheduledThreadPoolExecutor(threads,
+            new ThreadFactoryBuilder().setNameFormat("suite-health-%d").setDaemon(true).build());
+
+        geoServer.getCatalog().addListener(this);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    schedule(interval * 1000 / 2);
+                } catch (Exception e) {
+                    LOG.log(Level.WARNING, "Error scheduling store probes", e);
+                }
+            }
+        }, 0, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules a probe of every enabled store not already being probed, within the specified time.
+     */
+    void schedule(long jitter) {
+        for (StoreInfo store : geoServer.getCatalog().getStores(StoreInfo.class)) {
+            if (!store.isEnabled() || !probing.add(store.getId())) {
+                continue;
+            }
+
+            final String id = store.getId();
+            long delay;
+            synchronized (random) {
+                delay = jitter > 0 ? (long) (random.nextDouble() * jitter) : 0;
+            }
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        StoreInfo store = geoServer.getCatalog().getStore(id, StoreInfo.class);
+                        if (store != null && store.isEnabled()) {
+                            probe(store);
+                        }
+                    }
+                    finally {
+                        probing.remove(id);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Probes a store, recording the outcome.
+     */
+    public Health probe(final StoreInfo store) {
+        Health h = health.get(store.getId());
+        if (h == null) {
+            h = new Health();
+            Health prev = health.putIfAbsent(store.getId(), h);
+            h = prev != null ? prev : h;
+        }
+
+        long started = System.currentTimeMillis();
+        try {
+            if (store instanceof WMSStoreInfo) {
+                capabilities.revalidate((WMSStoreInfo) store);
+            }
+            else {
+                access.call(store, new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        connect(store);
+                        return null;
+                    }
+                });
+            }
+            h.succeeded(System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            LOG.log(Level.FINE, "Probe of store " + store.getName() + " failed", e);
+            h.failed(e);
+        }
+        return h;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    void connect(StoreInfo store) throws Exception {
+        if (store instanceof DataStoreInfo) {
+            DataAccess data = ((DataStoreInfo) store).getDataStore(new NullProgressListener());
+            if (data instanceof JDBCDataStore) {
+                Connection cx = ((JDBCDataStore) data).getConnection(Transaction.AUTO_COMMIT);
+                ((JDBCDataStore) data).closeSafe(cx);
+            }
+            else {
+                // the names are usually cached along with the store, a feature is read from the source
+                List<Name> names = data.getNames();
+                if (!names.isEmpty()) {
+                    Query q = new Query(names.get(0).getLocalPart());
+                    q.setMaxFeatures(1);
+                    FeatureIterator it = data.getFeatureSource(names.get(0)).getFeatures(q).features();
+                    try {
+                        if (it.hasNext()) {
+                            it.next();
+                        }
+                    }
+                    finally {
+                        it.close();
+                    }
+                }
+            }
+        }
+        else if (store instanceof CoverageStoreInfo) {
+            CoverageStoreInfo coverage = (CoverageStoreInfo) store;
+            File file = file(coverage);
+            if (file != null && !file.canRead()) {
+                throw new FileNotFoundException("Unable to read " + file.getPath());
+            }
+            coverage.getGridCoverageReader(null, null).getGridCoverageNames();
+        }
+    }
+
+    /**
+     * The file behind a coverage store, <tt>null</tt> unless file based.
+     */
+    File file(CoverageStoreInfo store) {
+        if (store.getURL() == null) {
+            return null;
+        }
+        GeoServerResourceLoader loader = geoServer.getCatalog().getResourceLoader();
+        return Files.url(loader != null ? loader.getBaseDirectory() : null, store.getURL());
+    }
+
+    /**
+     * The health of a store as of its last probe, <tt>null</tt> if it was not probed yet.
+     */
+    public Health health(StoreInfo store) {
+        return store.getId() != null ? health.get(store.getId()) : null;
+    }
+
+    void reset(Object info) {
+        if (info instanceof StoreInfo && ((StoreInfo) info).getId() != null) {
+            health.remove(((StoreInfo) info).getId());
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        reset(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        reset(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        health.clear();
+    }
+}
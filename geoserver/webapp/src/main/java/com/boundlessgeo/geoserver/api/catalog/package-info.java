@@ -0,0 +1,4 @@
+/**
+ * Catalog support for the api, state derived from the catalog and kept current with catalog events.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
@@ -12,9 +12,22 @@ import org.geoserver.catalog.WorkspaceInfo;
 import org.geoserver.config.GeoServer;
 import org.geoserver.config.GeoServerDataDirectory;
 import org.geotools.feature.NameImpl;
+import com.boundlessgeo.geoserver.api.exceptions.BadRequestException;
 import com.boundlessgeo.geoserver.api.exceptions.NotFoundException;
+import com.boundlessgeo.geoserver.json.Fields;
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.json.NDJSONWriter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
 
 /**
  * Base class for api controllers.
@@ -23,6 +36,15 @@ public abstract class ApiController {
 
     public static final int DEFAULT_PAGESIZE = 25;
 
+    static final MediaType NDJSON = MediaType.valueOf(NDJSONWriter.MEDIA_TYPE_VALUE);
+
+    /**
+     * Encodes an item of a list within the specified object.
+     */
+    protected interface Encoder<T> {
+        void encode(JSONObj obj, T item) throws IOException;
+    }
+
     protected GeoServer geoServer;
 
     public ApiController(GeoServer geoServer) {
@@ -38,13 +60,29 @@ public abstract class ApiController {
     }
 
     protected Integer page(HttpServletRequest req) {
-        String page = req.getParameter("page");
-        return page != null ? Integer.parseInt(page) : null;
+        return natural(req, "page", null);
     }
 
     protected Integer pageSize(HttpServletRequest req, Integer def) {
-        String size = req.getParameter("pagesize");
-        return size != null ? Integer.parseInt(size) : def;
+        return natural(req, "pagesize", def);
+    }
+
+    /**
+     * Parses a paging parameter, failing with a bad request unless it is a non-negative integer.
+     */
+    Integer natural(HttpServletRequest req, String name, Integer def) {
+        String value = req.getParameter(name);
+        if (value == null) {
+            return def;
+        }
+        try {
+            int i = Integer.parseInt(value.trim());
+            if (i >= 0) {
+                return i;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new BadRequestException("Invalid " + name + ": " + value + ", expected a non-negative integer");
     }
 
     protected Integer offset(HttpServletRequest req) {
@@ -56,6 +94,141 @@ public abstract class ApiController {
         return pageSize(req, 25);
     }
 
+    /**
+     * Projection requested with the <tt>fields</tt> parameter, {@link Fields#ALL} if not specified.
+     * <p>
+     * Applies to the individual items of list responses, and to the object itself for detail responses.
+     * </p>
+     */
+    protected Fields fields(HttpServletRequest req) {
+        return Fields.parse(req.getParameter("fields"));
+    }
+
+    /**
+     * Checks the strong ETag for the specified catalog version against the <tt>If-None-Match</tt> header of the
+     * request.
+     * <p>
+     * The tag also covers the requested media type and the user, since both change the response for the same
+     * version of the catalog.
+     * </p>
+     * <p>
+     * Handlers look up the object they answer for first, so a request for a missing object gets a 404 rather
+     * than a 304 for <tt>If-None-Match: *</tt>. A response that is not answered with a 304 is not tagged yet,
+     * handlers read the version before encoding and call {@link #tag(long, int, HttpServletRequest,
+     * HttpServletResponse)} once encoded.
+     * </p>
+     * @return <tt>true</tt> if the client already has the current response, in which case the status has been
+     *   set to 304 and the handler should return without encoding anything.
+     */
+    protected boolean notModified(long version, HttpServletRequest req, HttpServletResponse res) {
+        String etag = etag(version, req);
+
+        String match = req.getHeader("If-None-Match");
+        if (match != null) {
+            for (String tag : match.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag) || tag.equals("*")) {
+                    res.setHeader("ETag", etag);
+                    res.setStatus(HttpStatus.NOT_MODIFIED.value());
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tags a complete response with the strong ETag for the specified catalog version.
+     *
+     * @see #tag(long, int, HttpServletRequest, HttpServletResponse)
+     */
+    protected void tag(long version, HttpServletRequest req, HttpServletResponse res) {
+        tag(version, 0, req, res);
+    }
+
+    /**
+     * Tags an encoded response with the strong ETag for the specified catalog version, read before encoding.
+     * <p>
+     * A response with items that failed or timed out, replaced by partial entries, is not tagged and not to be
+     * stored, so that clients do not keep revalidating a degraded response until the catalog changes.
+     * </p>
+     * @param failures Number of items of the response replaced by partial entries.
+     */
+    protected void tag(long version, int failures, HttpServletRequest req, HttpServletResponse res) {
+        if (failures > 0) {
+            res.setHeader("Cache-Control", "no-store");
+        }
+        else {
+            res.setHeader("ETag", etag(version, req));
+        }
+    }
+
+    String etag(long version, HttpServletRequest req) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String variant = req.getHeader("Accept") + "|" + (auth != null ? auth.getName() : null);
+        return String.format("\"%x-%x\"", version, variant.hashCode());
+    }
+
+    /**
+     * Determines if the client asked for a list as newline delimited JSON, see {@link #stream}.
+     * <p>
+     * Only <tt>application/x-ndjson</tt> named explicitly in the <tt>Accept</tt> header selects it, wildcards
+     * get the regular JSON response.
+     * </p>
+     */
+    protected boolean streaming(HttpServletRequest req) {
+        String accept = req.getHeader("Accept");
+        if (accept == null) {
+            return false;
+        }
+        try {
+            for (MediaType mt : MediaType.parseMediaTypes(accept)) {
+                if (NDJSON.getType().equals(mt.getType()) && NDJSON.getSubtype().equals(mt.getSubtype())) {
+                    return true;
+                }
+            }
+        }
+        catch(IllegalArgumentException e) {
+            // invalid header, fall back to the regular response
+        }
+        return false;
+    }
+
+    /**
+     * Writes list items as newline delimited JSON, one object per line.
+     * <p>
+     * Each item is encoded and written as soon as it is read from the iterator, so the whole list is never held
+     * in memory. The iterator is closed once exhausted.
+     * </p>
+     */
+    protected <T> void stream(Iterator<T> it, Fields fields, Encoder<T> encoder, HttpServletResponse res)
+        throws IOException {
+        try {
+            res.setContentType(NDJSONWriter.MEDIA_TYPE_VALUE);
+            res.setCharacterEncoding("UTF-8");
+
+            NDJSONWriter out = new NDJSONWriter(res.getOutputStream());
+            try {
+                while (it.hasNext()) {
+                    JSONObj obj = new JSONObj().fields(fields);
+                    encoder.encode(obj, it.next());
+                    out.write(obj);
+                }
+            }
+            finally {
+                out.close();
+            }
+        }
+        finally {
+            if (it instanceof Closeable) {
+                ((Closeable) it).close();
+            }
+        }
+    }
+
     protected WorkspaceInfo findWorkspace(String wsName, Catalog cat) {
         WorkspaceInfo ws = cat.getWorkspaceByName(wsName);
         if (ws == null) {
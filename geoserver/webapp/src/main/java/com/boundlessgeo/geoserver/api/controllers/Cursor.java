@@ -0,0 +1,116 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.controllers;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geoserver.catalog.Info;
+import org.geoserver.catalog.Predicates;
+import org.geoserver.ows.util.OwsUtils;
+import org.geotools.factory.CommonFactoryFinder;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.sort.SortBy;
+
+import com.boundlessgeo.geoserver.api.exceptions.BadRequestException;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Position in a catalog listing sorted on a unique property, for keyset pagination.
+ * <p>
+ * Rather than skipping <tt>offset</tt> objects, the next page is selected with a filter on the sort property
+ * being greater than its value for the last object of the previous page, so every page costs the same and
+ * pages stay stable while objects are added or removed. Clients pass the position around as an opaque token.
+ * </p>
+ */
+class Cursor {
+
+    static final FilterFactory2 FILTERS = CommonFactoryFinder.getFilterFactory2();
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** properties listings may be sorted on */
+    static final List<String> SORTS = Arrays.asList("name", "id");
+
+    /**
+     * Start of a listing sorted on the specified property, <tt>name</tt> if <tt>null</tt>.
+     *
+     * @throws BadRequestException If the listing can not be sorted on the property.
+     */
+    static Cursor start(String sort) {
+        sort = sort != null ? sort : SORTS.get(0);
+        if (!SORTS.contains(sort)) {
+            throw new BadRequestException("Unsupported sort: " + sort + ", must be one of " + SORTS);
+        }
+        return new Cursor(sort, null);
+    }
+
+    /**
+     * Parses a token, the start of the listing if the token is empty.
+     *
+     * @throws BadRequestException If the token is invalid.
+     */
+    static Cursor parse(String token, String sort) {
+        if (token == null || token.isEmpty()) {
+            return start(sort);
+        }
+
+        String str;
+        try {
+            str = new String(BaseEncoding.base64Url().omitPadding().decode(token), UTF8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + token);
+        }
+
+        int i = str.indexOf(':');
+        if (i < 0 || !SORTS.contains(str.substring(0, i))) {
+            throw new BadRequestException("Invalid cursor: " + token);
+        }
+        return new Cursor(str.substring(0, i), i + 1 < str.length() ? str.substring(i + 1) : null);
+    }
+
+    /** property sorted on */
+    final String sort;
+
+    /** value of the sort property for the last object returned, <tt>null</tt> at the start */
+    final String last;
+
+    Cursor(String sort, String last) {
+        this.sort = sort;
+        this.last = last;
+    }
+
+    /**
+     * Narrows a filter to the objects after the cursor.
+     */
+    Filter filter(Filter filter) {
+        if (last == null) {
+            return filter;
+        }
+        return Predicates.and(filter, FILTERS.greater(FILTERS.property(sort), FILTERS.literal(last)));
+    }
+
+    /**
+     * Order of the listing.
+     */
+    SortBy sortBy() {
+        return Predicates.sortBy(sort, true);
+    }
+
+    /**
+     * Cursor positioned after the specified object.
+     */
+    Cursor next(Info info) {
+        return new Cursor(sort, String.valueOf(OwsUtils.get(info, sort)));
+    }
+
+    /**
+     * Opaque token for the cursor.
+     */
+    String token() {
+        return BaseEncoding.base64Url().omitPadding().encode((sort + ":" + (last != null ? last : "")).getBytes(UTF8));
+    }
+}
@@ -0,0 +1,45 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.controllers;
+
+import com.boundlessgeo.geoserver.api.exceptions.NotFoundException;
+import com.boundlessgeo.geoserver.json.JSONArr;
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.util.ErrorBuffer;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Details of the errors reported compactly by id, see {@link IO#error(JSONObj, Throwable, boolean)}.
+ */
+@Controller
+@RequestMapping("/api/errors")
+public class ErrorController {
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.GET)
+    public @ResponseBody JSONObj get(@PathVariable String id) {
+        ErrorBuffer.Entry e = ErrorBuffer.get().find(id);
+        if (e == null) {
+            throw new NotFoundException("No such error: " + id + ", it may have been evicted");
+        }
+
+        JSONObj obj = new JSONObj()
+            .put("id", e.id())
+            .put("message", e.message())
+            .put("count", e.count());
+
+        JSONArr cause = obj.putArray("cause");
+        for (String c : e.causes()) {
+            cause.add(c);
+        }
+        obj.put("trace", e.trace());
+
+        IO.date(obj.putObject("first"), e.first());
+        IO.date(obj.putObject("last"), e.last());
+        return obj;
+    }
+}
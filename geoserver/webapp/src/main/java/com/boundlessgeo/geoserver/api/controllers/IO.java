@@ -6,6 +6,8 @@ package com.boundlessgeo.geoserver.api.controllers;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,13 +20,11 @@ import org.geoserver.catalog.NamespaceInfo;
 import org.geoserver.catalog.ResourceInfo;
 import org.geoserver.catalog.WMSLayerInfo;
 import org.geoserver.catalog.WorkspaceInfo;
-import org.geoserver.wms.WMSInfo;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.filter.text.ecql.ECQL;
 import org.geotools.filter.visitor.DuplicatingFilterVisitor;
 import org.geotools.geometry.jts.Geometries;
-import org.geotools.referencing.CRS;
 import org.geotools.resources.coverage.FeatureUtilities;
 import org.geotools.util.logging.Logging;
 import org.ocpsoft.pretty.time.PrettyTime;
@@ -39,10 +39,17 @@ import org.opengis.filter.Filter;
 import org.opengis.filter.expression.PropertyName;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.crs.GeographicCRS;
-import org.opengis.referencing.crs.ProjectedCRS;
 
+import com.boundlessgeo.geoserver.api.catalog.BoundsService;
+import com.boundlessgeo.geoserver.api.catalog.SchemaCache;
+import com.boundlessgeo.geoserver.json.Fields;
 import com.boundlessgeo.geoserver.json.JSONArr;
 import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.util.CRSCache;
+import com.boundlessgeo.geoserver.util.ErrorBuffer;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
@@ -61,46 +68,27 @@ public class IO {
      * @return The object passed in.
      */
     public static JSONObj proj(JSONObj obj, CoordinateReferenceSystem crs, String srs) {
-        if (srs == null && crs != null) {
+        if (crs == null && srs != null) {
             try {
-                srs = CRS.lookupIdentifier(crs, false);
+                crs = CRSCache.get().decode(srs);
             } catch (Exception e) {
-                LOG.log(Level.WARNING, "Unable to determine srs from crs: " + crs, e);
+                LOG.log(Level.WARNING, "Unable to determine crs from srs: " + srs, e);
             }
         }
 
-        if (srs != null) {
-            obj.put("srs", srs);
+        // identifier lookup is expensive, cached per crs along with type and units
+        CRSCache.Info info = crs != null ? CRSCache.get().info(crs) : null;
+        if (srs == null && info != null) {
+            srs = info.srs();
         }
 
-        if (crs == null && srs != null) {
-            try {
-                crs = CRS.decode(srs);
-            } catch (Exception e) {
-                LOG.log(Level.WARNING, "Unable to determine crs from srs: " + srs, e);
-            }
+        if (srs != null) {
+            obj.put("srs", srs);
         }
 
-        if (crs != null) {
-            // type
-            obj.put("type",
-                    crs instanceof ProjectedCRS ? "projected" : crs instanceof GeographicCRS ? "geographic" : "other");
-
-            // units
-            String units = null;
-            try {
-                // try to determine from actual crs
-                String unit = crs.getCoordinateSystem().getAxis(0).getUnit().toString();
-                if ("ft".equals(unit) || "feets".equals(unit))
-                    units = "ft";
-            } catch (Exception e) {
-                LOG.log(Level.WARNING, "Unable to determine units from crs", e);
-            }
-            if (units == null) {
-                // fallback: meters for projected, otherwise degrees
-                units = crs instanceof ProjectedCRS ? "m" : "degrees";
-            }
-            obj.put("unit", units);
+        if (info != null) {
+            obj.put("type", info.type())
+               .put("unit", info.unit());
         }
 
         return obj;
@@ -159,13 +147,29 @@ public class IO {
 
     /**
      * Encodes a layer within the specified object.
-     *
+     * <p>
+     * The geometry, schema, projection and bounds are deferred so they are only computed if selected by the
+     * object {@link JSONObj#fields()} and actually encoded. A projection without <tt>geometry</tt> or
+     * <tt>schema</tt> never looks up the feature type.
+     * </p>
      * @return The object passed in.
      */
     public static JSONObj layer(JSONObj obj, LayerInfo layer) {
+        return layer(obj, layer, null);
+    }
+
+    /**
+     * Encodes a layer within the specified object, looking up its schema in a cache.
+     *
+     * @param schemas The schema cache, may be <tt>null</tt>.
+     *
+     * @return The object passed in.
+     */
+    public static JSONObj layer(JSONObj obj, LayerInfo layer, final SchemaCache schemas) {
         String wsName = layer.getResource().getNamespace().getPrefix();
+        final Fields fields = obj.fields();
 
-        ResourceInfo r = layer.getResource();
+        final ResourceInfo r = layer.getResource();
         obj.put("name", layer.getName())
                 .put("workspace", wsName)
                 .put("title", layer.getTitle() != null ? layer.getTitle() : r.getTitle())
@@ -173,30 +177,131 @@ public class IO {
                 .put("type", type(r));
 
         if (r instanceof FeatureTypeInfo) {
-            FeatureTypeInfo ft = (FeatureTypeInfo) r;
-            FeatureType schema;
-            try {
-                schema = ft.getFeatureType();
-                obj.put("geometry", geometry(schema));
-                IO.schema(obj.putObject("schema"), schema, true );
-            } catch (IOException e) {
-                LOG.log(Level.WARNING, "Error looking up schema "+ft.getNativeName(), e);
-            }
+            final Supplier<FeatureType> schema = Suppliers.memoize(new Supplier<FeatureType>() {
+                @Override
+                public FeatureType get() {
+                    FeatureTypeInfo ft = (FeatureTypeInfo) r;
+                    try {
+                        return ft.getFeatureType();
+                    } catch (IOException e) {
+                        LOG.log(Level.WARNING, "Error looking up schema "+ft.getNativeName(), e);
+                        return null;
+                    }
+                }
+            });
+            obj.put("geometry", new Supplier<String>() {
+                @Override
+                public String get() {
+                    return schema.get() != null ? geometry(schema.get()) : null;
+                }
+            });
+            obj.put("schema", new Supplier<JSONObj>() {
+                @Override
+                public JSONObj get() {
+                    JSONObj target = new JSONObj().fields(fields.get("schema"));
+                    if (schemas == null) {
+                        return schema.get() != null ? IO.schema(target, schema.get(), true) : null;
+                    }
+                    return schemas.schema(target, r, true, new Supplier<JSONObj>() {
+                        @Override
+                        public JSONObj get() {
+                            return schema.get() != null ? IO.schema(new JSONObj(), schema.get(), true) : null;
+                        }
+                    });
+                }
+            });
         }
         else if( r instanceof CoverageInfo) {
             obj.put("geometry", "raster");
-            IO.schemaGrid(obj.putObject("schema"), ((CoverageInfo)r), true );
+            obj.put("schema", new Supplier<JSONObj>() {
+                @Override
+                public JSONObj get() {
+                    JSONObj target = new JSONObj().fields(fields.get("schema"));
+                    if (schemas == null) {
+                        return IO.schemaGrid(target, ((CoverageInfo)r), true );
+                    }
+                    return schemas.schema(target, r, true, new Supplier<JSONObj>() {
+                        @Override
+                        public JSONObj get() {
+                            return IO.schemaGrid(new JSONObj(), ((CoverageInfo)r), true );
+                        }
+                    });
+                }
+            });
         }
-        else if( r instanceof WMSInfo) {
+        else if( r instanceof WMSLayerInfo) {
             obj.put("geometry", "layer");
         }
 
-        proj(obj.putObject("proj"), r.getCRS(), r.getSRS());
-        bbox( obj.putObject("bbox"), r );
+        obj.put("proj", new Supplier<JSONObj>() {
+            @Override
+            public JSONObj get() {
+                return proj(new JSONObj().fields(fields.get("proj")), r.getCRS(), r.getSRS());
+            }
+        });
+        obj.put("bbox", new Supplier<JSONObj>() {
+            @Override
+            public JSONObj get() {
+                return bbox(new JSONObj().fields(fields.get("bbox")), r);
+            }
+        });
 
         return metadata(obj, layer);
     }
 
+    /**
+     * Encodes layers into the specified array.
+     * <p>
+     * When the array {@link JSONArr#fields()} select the geometry or schema, which look up the feature type
+     * from its store, layers are encoded concurrently by {@link ParallelEncoder}, up to
+     * {@link ParallelEncoder#PROBES} at a time per store. A layer that times out is encoded with
+     * {@link #layerSummary(JSONObj, LayerInfo)} and an <tt>error</tt> object.
+     * </p>
+     * @return The number of layers encoded as partial entries, since they timed out or failed.
+     */
+    public static int layers(JSONArr arr, Iterator<LayerInfo> it, final SchemaCache schemas)
+        throws IOException {
+        Fields fields = arr.fields();
+        if (!fields.has("geometry") && !fields.has("schema")) {
+            while (it.hasNext()) {
+                layer(arr.addObject(), it.next(), schemas);
+            }
+            return 0;
+        }
+
+        return ParallelEncoder.encode(it, arr, new ApiController.Encoder<LayerInfo>() {
+            @Override
+            public void encode(JSONObj obj, LayerInfo layer) {
+                layer(obj, layer, schemas);
+            }
+        }, new ApiController.Encoder<LayerInfo>() {
+            @Override
+            public void encode(JSONObj obj, LayerInfo layer) {
+                layerSummary(obj, layer);
+            }
+        }, ParallelEncoder.TIMEOUT, new Function<LayerInfo,Semaphore>() {
+            @Override
+            public Semaphore apply(LayerInfo layer) {
+                ResourceInfo r = layer.getResource();
+                return r != null && r.getStore() != null ? ParallelEncoder.permits(r.getStore()) : null;
+            }
+        });
+    }
+
+    /**
+     * Encodes the properties of a layer that do not require looking up its resource from the store.
+     *
+     * @return The object passed in.
+     */
+    public static JSONObj layerSummary(JSONObj obj, LayerInfo layer) {
+        ResourceInfo r = layer.getResource();
+        obj.put("name", layer.getName())
+           .put("workspace", r.getNamespace().getPrefix())
+           .put("title", layer.getTitle() != null ? layer.getTitle() : r.getTitle())
+           .put("type", type(r));
+        return metadata(obj, layer);
+    }
+
     static String type(ResourceInfo r)  {
         if (r instanceof CoverageInfo) {
             return "raster";
@@ -222,17 +327,30 @@ public class IO {
         return geomType.getName();
     }
     
+    /**
+     * Encodes the native and lat/lon bounds of a resource, along with their <tt>status</tt> for feature types
+     * and coverages, see {@link BoundsService#source(ResourceInfo)}.
+     *
+     * @return The object passed in.
+     */
     public static JSONObj bbox( JSONObj bbox, ResourceInfo r ){
-        if (r.getNativeBoundingBox() != null) {
-            bounds(bbox.putObject("native"), r.getNativeBoundingBox());
-        }
-        else {
-            // check if the crs is geographic, if so use lat lon
-            if (r.getCRS() instanceof GeographicCRS) {
-                bounds(bbox.putObject("native"), r.getLatLonBoundingBox());
+        if (bbox.fields().has("native")) {
+            if (r.getNativeBoundingBox() != null) {
+                bounds(bbox.putObject("native"), r.getNativeBoundingBox());
+            }
+            else {
+                // check if the crs is geographic, if so use lat lon
+                if (r.getCRS() instanceof GeographicCRS && r.getLatLonBoundingBox() != null) {
+                    bounds(bbox.putObject("native"), r.getLatLonBoundingBox());
+                }
             }
         }
-        bounds(bbox.putObject("lonlat"), r.getLatLonBoundingBox());       
+        if (bbox.fields().has("lonlat") && r.getLatLonBoundingBox() != null) {
+            bounds(bbox.putObject("lonlat"), r.getLatLonBoundingBox());
+        }
+        if (r instanceof FeatureTypeInfo || r instanceof CoverageInfo) {
+            bbox.put("status", BoundsService.source(r));
+        }
         return bbox;
     }
     
@@ -241,6 +359,9 @@ public class IO {
             schema.put("name", type.getName().getLocalPart() );
             schema.put("namespace", type.getName().getNamespaceURI() );
             schema.put("simple", type instanceof SimpleFeatureType );
+            if (!schema.fields().has("attributes")) {
+                return schema;
+            }
             JSONArr attributes = schema.putArray("attributes");
             for( PropertyDescriptor d : type.getDescriptors() ){
                 PropertyType t = d.getType();
@@ -264,8 +385,14 @@ public class IO {
                     .put("type", t.getBinding().getSimpleName() );
                 
                 if( d instanceof GeometryDescriptor){
-                    GeometryDescriptor g = (GeometryDescriptor) d;                    
-                    proj( property.putObject("proj"), g.getCoordinateReferenceSystem(), null );
+                    final GeometryDescriptor g = (GeometryDescriptor) d;
+                    final Fields fields = property.fields().get("proj");
+                    property.put("proj", new Supplier<JSONObj>() {
+                        @Override
+                        public JSONObj get() {
+                            return proj(new JSONObj().fields(fields), g.getCoordinateReferenceSystem(), null);
+                        }
+                    });
                 }
 
                 if( details){
@@ -383,6 +510,36 @@ public class IO {
         return obj;
     }
 
+    /**
+     * Encodes an error, compactly by message and the id of its details in the {@link ErrorBuffer} if
+     * <tt>compact</tt> is set, otherwise with its causal chain and stack trace.
+     * <p>
+     * The compact form is meant for listings that may report many errors, their details are looked up
+     * through <tt>/api/errors/{id}</tt>.
+     * </p>
+     * @return The object passed in.
+     */
+    public static JSONObj error(JSONObj json, Throwable error, boolean compact) {
+        if (!compact || error == null) {
+            return error(json, error);
+        }
+
+        String message = null;
+        for (Throwable t : Throwables.getCausalChain(error)) {
+            if (t.getMessage() != null) {
+                message = t.getMessage();
+                break;
+            }
+        }
+        return json.put("message", message != null ? message : error.toString())
+            .put("id", ErrorBuffer.get().add(error).id());
+    }
+
+    /**
+     * Encodes an error with its causal chain and stack trace.
+     *
+     * @return The object passed in.
+     */
     public static JSONObj error(JSONObj json, Throwable error) {
         if (error != null) {
             String message = null;
@@ -22,8 +22,9 @@ import org.geoserver.importer.ImportData;
 import org.geoserver.importer.ImportFilter;
 import org.geoserver.importer.ImportTask;
 import org.geoserver.importer.Importer;
-import org.geotools.referencing.CRS;
+import com.boundlessgeo.geoserver.util.CRSCache;
 import com.boundlessgeo.geoserver.util.Hasher;
+import com.boundlessgeo.geoserver.api.converters.CBORMessageConverter;
 import com.boundlessgeo.geoserver.api.exceptions.AppExceptionHandler;
 import com.boundlessgeo.geoserver.api.exceptions.BadRequestException;
 import com.boundlessgeo.geoserver.api.exceptions.NotFoundException;
@@ -143,7 +144,7 @@ public class ImportController extends ApiController {
         return result;
     }
 
-    @RequestMapping(value = "/{wsName}/{id}", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @RequestMapping(value = "/{wsName}/{id}", method = RequestMethod.PUT, consumes = {MediaType.APPLICATION_JSON_VALUE, CBORMessageConverter.MEDIA_TYPE_VALUE})
     public @ResponseBody JSONObj update(@PathVariable String wsName, @PathVariable Long id, @RequestBody JSONObj obj)
         throws Exception {
 
@@ -169,7 +170,7 @@ public class ImportController extends ApiController {
 
             CoordinateReferenceSystem crs = null;
             try {
-                crs = CRS.decode(srs);
+                crs = CRSCache.get().decode(srs);
             } catch (Exception e) {
                 throw new BadRequestException("Error decoding projection: " + srs);
             }
@@ -241,7 +242,7 @@ public class ImportController extends ApiController {
 
     JSONObj failed(ImportTask task) {
         JSONObj err = task(task);
-        IO.error(err, task.getError() );
+        IO.error(err, task.getError(), true);
         return err;
     }
 
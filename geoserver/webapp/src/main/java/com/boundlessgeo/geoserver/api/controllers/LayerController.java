@@ -8,6 +8,7 @@ import static org.geoserver.catalog.Predicates.equal;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -16,6 +17,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.boundlessgeo.geoserver.json.JSONArr;
 import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.util.CRSCache;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.geoserver.catalog.CascadeDeleteVisitor;
@@ -35,7 +37,6 @@ import org.geoserver.platform.resource.Resource;
 import org.geoserver.platform.resource.Resource.Type;
 import org.geoserver.ysld.YsldHandler;
 import org.geotools.geometry.jts.ReferencedEnvelope;
-import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.styling.ResourceLocator;
 import org.geotools.styling.Style;
@@ -43,6 +44,10 @@ import org.geotools.styling.StyledLayerDescriptor;
 import org.geotools.util.Version;
 import org.geotools.util.logging.Logging;
 import org.geotools.ysld.Ysld;
+import com.boundlessgeo.geoserver.api.catalog.BoundsService;
+import com.boundlessgeo.geoserver.api.catalog.CatalogVersions;
+import com.boundlessgeo.geoserver.api.catalog.SchemaCache;
+import com.boundlessgeo.geoserver.api.converters.CBORMessageConverter;
 import com.boundlessgeo.geoserver.api.exceptions.AppExceptionHandler;
 import com.boundlessgeo.geoserver.api.exceptions.BadRequestException;
 import com.boundlessgeo.geoserver.api.exceptions.InvalidYsldException;
@@ -70,16 +75,21 @@ public class LayerController extends ApiController {
     static Logger LOG = Logging.getLogger(LayerController.class);
 
     Importer importer;
+    CatalogVersions versions;
+    SchemaCache schemas;
 
     @Autowired
-    public LayerController(GeoServer geoServer, Importer importer) {
+    public LayerController(GeoServer geoServer, Importer importer, CatalogVersions versions, SchemaCache schemas) {
         super(geoServer);
         this.importer = importer;
+        this.versions = versions;
+        this.schemas = schemas;
     }
 
     @RequestMapping(value="/{wsName}", method = RequestMethod.GET)
     public @ResponseBody
-    JSONObj list(@PathVariable String wsName, HttpServletRequest req) {
+    JSONObj list(@PathVariable String wsName, HttpServletRequest req, HttpServletResponse res)
+        throws IOException {
         JSONObj obj = new JSONObj();
 
         Catalog cat = geoServer.getCatalog();
@@ -91,7 +101,41 @@ public class LayerController extends ApiController {
             }
         }
 
+        // an unknown workspace lists no layers, but has no version to match
+        Long version = cat.getWorkspaceByName(wsName) != null ? versions.version(wsName) : null;
+        if (version != null && notModified(version, req, res)) {
+            return null;
+        }
+
         Filter filter = equal("resource.namespace.prefix", wsName);
+        if (req.getParameter("cursor") != null) {
+            int failures = page(obj, Cursor.parse(req.getParameter("cursor"), req.getParameter("sort")), filter, req);
+            if (version != null) {
+                tag(version, failures, req, res);
+            }
+            return obj;
+        }
+        if (streaming(req)) {
+            // tagged up front as written while encoded, layers are encoded one at a time without timing out
+            if (version != null) {
+                tag(version, req, res);
+            }
+
+            // no page size limit unless asked for
+            Integer size = pageSize(req, null);
+            CloseableIterator<LayerInfo> it = size != null || page(req) != null
+                ? cat.list(LayerInfo.class, filter, offset(req), size, null) : cat.list(LayerInfo.class, filter);
+
+            stream(it, fields(req), new Encoder<LayerInfo>() {
+                @Override
+                public void encode(JSONObj obj, LayerInfo layer) {
+                    IO.layer(obj, layer, schemas);
+                }
+            }, res);
+            return null;
+        }
+
+        // counted as the user, who may not see every layer
         Integer total = cat.count(LayerInfo.class, filter);
         Integer page = page(req);
         Integer count = count(req);
@@ -100,22 +144,60 @@ public class LayerController extends ApiController {
         obj.put("page", page != null ? page : 0);
         obj.put("count", Math.min(total, count != null ? count : total));
 
-        JSONArr arr = obj.putArray("layers");
+        JSONArr arr = obj.putArray("layers").fields(fields(req));
+        int failures;
         try (
             CloseableIterator<LayerInfo> it = cat.list(LayerInfo.class, filter, offset(req), count, null);
         ) {
-            while (it.hasNext()) {
-                IO.layer(arr.addObject(), it.next());
-            }
+            failures = IO.layers(arr, it, schemas);
         }
 
+        if (version != null) {
+            tag(version, failures, req, res);
+        }
         return obj;
     }
 
+    /**
+     * Lists a page of layers after the cursor, along with the cursor for the next page if there is one.
+     *
+     * @return The number of layers encoded as partial entries.
+     */
+    int page(JSONObj obj, Cursor cursor, Filter filter, HttpServletRequest req) throws IOException {
+        int size = Math.max(1, count(req));
+
+        // one more than the page to tell whether there is a next page
+        List<LayerInfo> layers = new ArrayList<LayerInfo>(size + 1);
+        try (
+            CloseableIterator<LayerInfo> it = geoServer.getCatalog().list(
+                LayerInfo.class, cursor.filter(filter), null, size + 1, cursor.sortBy());
+        ) {
+            while (it.hasNext() && layers.size() <= size) {
+                layers.add(it.next());
+            }
+        }
+
+        if (layers.size() > size) {
+            layers.remove(size);
+            obj.put("next", cursor.next(layers.get(size - 1)).token());
+        }
+        obj.put("count", layers.size());
+
+        return IO.layers(obj.putArray("layers").fields(fields(req)), layers.iterator(), schemas);
+    }
+
     @RequestMapping(value="/{wsName}/{name}", method = RequestMethod.GET)
-    public @ResponseBody JSONObj get(@PathVariable String wsName, @PathVariable String name) {
+    public @ResponseBody JSONObj get(@PathVariable String wsName, @PathVariable String name,
+        HttpServletRequest req, HttpServletResponse res) {
         LayerInfo l = findLayer(wsName, name, geoServer.getCatalog());
-        return IO.layer(new JSONObj(), l);
+        long version = versions.version(wsName);
+        if (notModified(version, req, res)) {
+            return null;
+        }
+
+        JSONObj obj = IO.layer(new JSONObj().fields(fields(req)), l, schemas);
+        tag(version, req, res);
+        return obj;
     }
 
     @RequestMapping(value="/{wsName}/{name}", method = RequestMethod.DELETE)
@@ -130,7 +212,7 @@ public class LayerController extends ApiController {
         return  put(wsName, name, obj);
     }
 
-    @RequestMapping(value="/{wsName}/{name}", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @RequestMapping(value="/{wsName}/{name}", method = RequestMethod.PUT, consumes = {MediaType.APPLICATION_JSON_VALUE, CBORMessageConverter.MEDIA_TYPE_VALUE})
     public @ResponseBody JSONObj put(@PathVariable String wsName, @PathVariable String name, @RequestBody JSONObj obj) throws IOException {
         Catalog cat = geoServer.getCatalog();
 
@@ -151,9 +233,10 @@ public class LayerController extends ApiController {
                         new ReferencedEnvelope(IO.bounds(bbox.object("native")), resource.getCRS()));
                 }
                 if (bbox.has("lonlat")) {
-                    resource.setNativeBoundingBox(
+                    resource.setLatLonBoundingBox(
                         new ReferencedEnvelope(IO.bounds(bbox.object("lonlat")), DefaultGeographicCRS.WGS84));
                 }
+                BoundsService.source(resource, BoundsService.USER);
             }
             else if ("proj".equals(prop)) {
                 JSONObj proj = obj.object("proj");
@@ -163,7 +246,7 @@ public class LayerController extends ApiController {
 
                 String srs = proj.str("srs");
                 try {
-                    CRS.decode(srs);
+                    CRSCache.get().decode(srs);
                 } catch (Exception e) {
                     throw new BadRequestException("Unknown spatial reference identifier: " + srs);
                 }
@@ -175,7 +258,7 @@ public class LayerController extends ApiController {
         cat.save(resource);
         cat.save(layer);
 
-        return get(wsName, name);
+        return IO.layer(new JSONObj(), layer, schemas);
     }
 
     
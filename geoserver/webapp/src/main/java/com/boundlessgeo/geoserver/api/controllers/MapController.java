@@ -5,17 +5,23 @@ package com.boundlessgeo.geoserver.api.controllers;
 
 import static org.geoserver.catalog.Predicates.equal;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import com.boundlessgeo.geoserver.json.Fields;
 import com.boundlessgeo.geoserver.json.JSONArr;
 import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.util.CRSCache;
 import org.apache.commons.httpclient.util.DateUtil;
 import org.geoserver.catalog.Catalog;
 import org.geoserver.catalog.LayerGroupInfo;
@@ -32,9 +38,11 @@ import org.geoserver.platform.resource.Resource;
 import org.geoserver.platform.resource.Resource.Type;
 import org.geotools.feature.NameImpl;
 import org.geotools.geometry.jts.ReferencedEnvelope;
-import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.util.logging.Logging;
+import com.boundlessgeo.geoserver.api.catalog.CatalogVersions;
+import com.boundlessgeo.geoserver.api.catalog.SchemaCache;
+import com.boundlessgeo.geoserver.api.converters.CBORMessageConverter;
 import com.boundlessgeo.geoserver.api.exceptions.NotFoundException;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -51,6 +59,8 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.vividsolutions.jts.geom.Envelope;
@@ -61,12 +71,17 @@ public class MapController extends ApiController {
 
     static Logger LOG = Logging.getLogger(LayerController.class);
 
+    CatalogVersions versions;
+    SchemaCache schemas;
+
     @Autowired
-    public MapController(GeoServer geoServer) {
+    public MapController(GeoServer geoServer, CatalogVersions versions, SchemaCache schemas) {
         super(geoServer);
+        this.versions = versions;
+        this.schemas = schemas;
     }
 
-    @RequestMapping(value = "/{wsName}", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @RequestMapping(value = "/{wsName}", method = RequestMethod.POST, consumes = {MediaType.APPLICATION_JSON_VALUE, CBORMessageConverter.MEDIA_TYPE_VALUE})
     @ResponseStatus(HttpStatus.CREATED)
     public @ResponseBody
     JSONObj create(@PathVariable String wsName,
@@ -82,7 +97,7 @@ public class MapController extends ApiController {
         if( obj.has("proj")){
             String srs = obj.str("proj");
             try {
-                crs = CRS.decode(srs);
+                crs = CRSCache.get().decode(srs);
             } catch (FactoryException e) {
                 LOG.log(Level.FINE, wsName+"."+name+" unrecorgnized proj:"+srs,e);
             }
@@ -113,14 +128,24 @@ public class MapController extends ApiController {
         LayerGroupInfo map = findMap(wsName,name);
         geoServer.getCatalog().remove(map);
         
-        return list(wsName);
+        return list(wsName, Fields.ALL);
     }
     
     @RequestMapping(value="/{wsName}/{name}", method = RequestMethod.GET)
     public @ResponseBody JSONObj get(@PathVariable String wsName,
-                                     @PathVariable String name) {
+                                     @PathVariable String name,
+                                     HttpServletRequest req, HttpServletResponse res) {
         LayerGroupInfo map = findMap(wsName, name);
-        return mapDetails(new JSONObj(), map, wsName);
+
+        // map layers may come from other workspaces
+        long version = versions.version();
+        if (notModified(version, req, res)) {
+            return null;
+        }
+
+        JSONObj obj = mapDetails(new JSONObj().fields(fields(req)), map, wsName);
+        tag(version, req, res);
+        return obj;
     }
 
     @RequestMapping(value = "/{wsName}/{name}", method = RequestMethod.PATCH)
@@ -150,7 +175,7 @@ public class MapController extends ApiController {
             if( obj.has("proj")){
                 String srs = obj.str("proj");
                 try {
-                    crs = CRS.decode(srs);
+                    crs = CRSCache.get().decode(srs);
                 } catch (FactoryException e) {
                     LOG.log(Level.FINE, wsName+"."+name+" unrecorgnized proj:"+srs,e);
                 }
@@ -174,8 +199,59 @@ public class MapController extends ApiController {
     }
     
     @RequestMapping(value="/{wsName}", method = RequestMethod.GET)
-    public @ResponseBody JSONArr list(@PathVariable String wsName) {
-        JSONArr arr = new JSONArr();
+    public @ResponseBody JSONArr list(@PathVariable String wsName, HttpServletRequest req,
+                                      HttpServletResponse res) throws IOException {
+        if ("default".equals(wsName)) {
+            WorkspaceInfo def = geoServer.getCatalog().getDefaultWorkspace();
+            if (def != null) {
+                wsName = def.getName();
+            }
+        }
+
+        // an unknown workspace lists no maps, but has no version to match
+        Long version = geoServer.getCatalog().getWorkspaceByName(wsName) != null ? versions.version(wsName) : null;
+        if (version != null && notModified(version, req, res)) {
+            return null;
+        }
+
+        if (streaming(req)) {
+            // tagged up front as written while encoded
+            if (version != null) {
+                tag(version, req, res);
+            }
+
+            final String ws = wsName;
+            CloseableIterator<LayerGroupInfo> it =
+                geoServer.getCatalog().list(LayerGroupInfo.class, equal("workspace.name", wsName));
+            try {
+                Iterator<LayerGroupInfo> maps = Iterators.filter(it, new Predicate<LayerGroupInfo>() {
+                    @Override
+                    public boolean apply(@Nullable LayerGroupInfo map) {
+                        return checkMap(map);
+                    }
+                });
+                stream(maps, fields(req), new Encoder<LayerGroupInfo>() {
+                    @Override
+                    public void encode(JSONObj obj, LayerGroupInfo map) {
+                        map(obj, map, ws);
+                    }
+                }, res);
+            }
+            finally {
+                it.close();
+            }
+            return null;
+        }
+
+        JSONArr arr = list(wsName, fields(req));
+        if (version != null) {
+            tag(version, req, res);
+        }
+        return arr;
+    }
+
+    JSONArr list(String wsName, Fields fields) {
+        JSONArr arr = new JSONArr().fields(fields);
 
         Catalog cat = geoServer.getCatalog();
 
@@ -204,13 +280,16 @@ public class MapController extends ApiController {
     }
 
     @RequestMapping(value="/{wsName}/{name}/layers", method = RequestMethod.GET)
-    public @ResponseBody JSONArr layers(@PathVariable String wsName, @PathVariable String name) {
+    public @ResponseBody JSONArr layers(@PathVariable String wsName, @PathVariable String name,
+                                        HttpServletRequest req, HttpServletResponse res) throws IOException {
         LayerGroupInfo m = findMap(wsName, name);
-
-        JSONArr arr = new JSONArr();
-        for (LayerInfo l : m.layers()) {
-            IO.layer(arr.addObject(), l);
+        long version = versions.version();
+        if (notModified(version, req, res)) {
+            return null;
         }
+
+        JSONArr arr = new JSONArr().fields(fields(req));
+        tag(version, IO.layers(arr, m.layers().iterator(), schemas), req, res);
         return arr;
     }
 
@@ -296,10 +375,12 @@ public class MapController extends ApiController {
            .put("abstract", map.getAbstract());
         
         ReferencedEnvelope bounds = map.getBounds();
-        IO.proj(obj.putObject("proj"), bounds.getCoordinateReferenceSystem(), null);
+        if (obj.fields().has("proj")) {
+            IO.proj(obj.putObject("proj"), bounds.getCoordinateReferenceSystem(), null);
+        }
         IO.bounds(obj.putObject("bbox"), bounds);
         
-        if( !obj.has("modified")){
+        if( !obj.has("modified") && obj.fields().has("modified")){
             String path = Paths.path( "workspaces", wsName, "layergroups", String.format("%s.xml", map.getName()));
             Resource r = geoServer.getCatalog().getResourceLoader().get( path );
             if( r.getType() == Type.RESOURCE ){
@@ -316,6 +397,9 @@ public class MapController extends ApiController {
     JSONObj mapDetails(JSONObj obj, LayerGroupInfo map, String wsName) {
         map(obj,map,wsName);
         
+        if (!obj.fields().has("layers")) {
+            return IO.metadata(obj, map);
+        }
         List<PublishedInfo> published = layers(map);
         JSONArr layers = obj.putArray("layers");
         for (PublishedInfo l : published) {
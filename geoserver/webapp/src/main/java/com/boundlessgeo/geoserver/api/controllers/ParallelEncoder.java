@@ -0,0 +1,491 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.controllers;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.util.logging.Logging;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.boundlessgeo.geoserver.api.controllers.ApiController.Encoder;
+import com.boundlessgeo.geoserver.json.Fields;
+import com.boundlessgeo.geoserver.json.JSONArr;
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.json.JSONWrapper;
+import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Encodes the items of a list concurrently, on a pool shared by all requests.
+ * <p>
+ * Each item is encoded into its own object and its deferred values computed, so a slow item only holds up its
+ * own thread. Items are handed out to a bounded number of workers, one permit of a semaphore each, which lets
+ * callers cap how many items touching the same store are encoded at a time across requests. A worker goes
+ * back to the end of the pool queue after every item, so a long list does not starve other requests.
+ * </p>
+ * <p>
+ * Items are either added to an array in the original order, or handed to a {@link Sink} as they complete.
+ * An item that takes longer than the timeout once started is replaced by a partial entry, encoded by a
+ * fallback encoder and carrying an <tt>error</tt> object, and the thread encoding it is interrupted. Items that
+ * can not even start, because the pool queue is full or every worker is held up by an item that timed out, are
+ * replaced the same way.
+ * </p>
+ * <p>
+ * Items may also be bound to a store, see {@link #permits(StoreInfo)}, so that no more than
+ * <tt>SUITE_STORE_PROBES</tt> items of the same store, 4 by default, are encoded at a time across requests. A
+ * few hung stores then hold up a few threads each rather than the whole pool.
+ * </p>
+ * <p>
+ * Workers run with the security context of the calling thread, so catalog lookups made by encoders see what the
+ * caller sees.
+ * </p>
+ * <p>
+ * The pool size, pool queue size and timeout in milliseconds are set with the <tt>SUITE_ENCODE_THREADS</tt>,
+ * <tt>SUITE_ENCODE_QUEUE</tt> and <tt>SUITE_ENCODE_TIMEOUT</tt> properties.
+ * </p>
+ */
+class ParallelEncoder<T> {
+
+    static Logger LOG = Logging.getLogger(ParallelEncoder.class);
+
+    static final int THREADS = property("SUITE_ENCODE_THREADS", 16);
+
+    static final int QUEUE = property("SUITE_ENCODE_QUEUE", 256);
+
+    static final long TIMEOUT = property("SUITE_ENCODE_TIMEOUT", 10000);
+
+    /**
+     * Number of items of a store encoded at a time, across requests, set with <tt>SUITE_STORE_PROBES</tt>.
+     */
+    static final int PROBES = Math.max(1, property("SUITE_STORE_PROBES", 4));
+
+    /** probe permits by store id, kept while in use */
+    static final LoadingCache<String,Semaphore> PERMITS = CacheBuilder.newBuilder().weakValues()
+        .build(new CacheLoader<String,Semaphore>() {
+            @Override
+            public Semaphore load(String store) {
+                return new Semaphore(PROBES);
+            }
+        });
+
+    /** tasks beyond the queue are rejected, and the items they would have encoded are reported as such */
+    static final ThreadPoolExecutor EXECUTOR;
+    static {
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(Math.max(1, QUEUE)),
+            new ThreadFactoryBuilder().setNameFormat("suite-encoder-%d").setDaemon(true).build());
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    static final String BUSY = "Too many concurrent requests, try again later";
+
+    static int property(String name, int def) {
+        String value = GeoServerExtensions.getProperty(name);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                LOG.warning("Ignoring invalid " + name + ": " + value);
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Permits bounding how many items of a store are encoded at a time, shared by all requests.
+     * <p>
+     * Stores that are not yet part of the catalog get permits of their own.
+     * </p>
+     */
+    static Semaphore permits(StoreInfo store) {
+        return store.getId() != null ? PERMITS.getUnchecked(store.getId()) : new Semaphore(PROBES);
+    }
+
+    /**
+     * Receives encoded items as they complete, on the calling thread.
+     */
+    interface Sink {
+        /**
+         * @param index Position of the item in the list.
+         * @param obj The encoded item, or its partial entry.
+         */
+        void add(int index, JSONObj obj) throws IOException;
+    }
+
+    /**
+     * Encodes the items into the array, with up to a pool's worth of items at a time.
+     *
+     * @param it The items, consumed by the call.
+     * @param arr Target array, the new objects share its {@link JSONArr#fields()}.
+     * @param encoder Encodes an item.
+     * @param partial Encodes the cheap properties of an item that timed out or failed.
+     * @param timeout Time an item may take once started, in milliseconds.
+     *
+     * @return The number of items replaced by partial entries, since they timed out or failed.
+     */
+    static <T> int encode(Iterator<T> it, JSONArr arr, Encoder<T> encoder, Encoder<T> partial,
+        long timeout) throws IOException {
+        return encode(it, arr, encoder, partial, timeout, null);
+    }
+
+    /**
+     * Encodes the items into the array, each holding a permit of its own store while encoded.
+     *
+     * @param store Permits of the store of an item, <tt>null</tt> for items not bound to a store, usually
+     *   {@link #permits(StoreInfo)}.
+     * @see #encode(Iterator, JSONArr, Encoder, Encoder, long)
+     */
+    static <T> int encode(Iterator<T> it, JSONArr arr, Encoder<T> encoder, Encoder<T> partial, long timeout,
+        Function<? super T,Semaphore> store) throws IOException {
+        List<T> items = Lists.newArrayList(it);
+        final JSONObj[] encoded = new JSONObj[items.size()];
+        ParallelEncoder<T> pe =
+            new ParallelEncoder<T>(items, arr.fields(), encoder, partial, timeout, new Semaphore(THREADS), store);
+        pe.run(new Sink() {
+            @Override
+            public void add(int index, JSONObj obj) {
+                encoded[index] = obj;
+            }
+        });
+        for (JSONObj obj : encoded) {
+            arr.add(obj);
+        }
+        return pe.failures;
+    }
+
+    /**
+     * Encodes the items into the array, in the original order.
+     *
+     * @param permits Bounds the number of items encoded at a time, shared by the callers to bound together.
+     *
+     * @return The number of items replaced by partial entries, since they timed out or failed.
+     * @see #encode(Iterator, JSONArr, Encoder, Encoder, long)
+     */
+    static <T> int encode(List<T> items, JSONArr arr, Encoder<T> encoder, Encoder<T> partial, long timeout,
+        Semaphore permits) throws IOException {
+        final JSONObj[] encoded = new JSONObj[items.size()];
+        ParallelEncoder<T> pe = new ParallelEncoder<T>(items, arr.fields(), encoder, partial, timeout, permits, null);
+        pe.run(new Sink() {
+            @Override
+            public void add(int index, JSONObj obj) {
+                encoded[index] = obj;
+            }
+        });
+        for (JSONObj obj : encoded) {
+            arr.add(obj);
+        }
+        return pe.failures;
+    }
+
+    /**
+     * Encodes the items, handing each to the sink as soon as it completes.
+     *
+     * @param fields Projection of the encoded objects.
+     * @see #encode(List, JSONArr, Encoder, Encoder, long, Semaphore)
+     */
+    static <T> void encode(List<T> items, Fields fields, Encoder<T> encoder, Encoder<T> partial, long timeout,
+        Semaphore permits, Sink sink) throws IOException {
+        new ParallelEncoder<T>(items, fields, encoder, partial, timeout, permits, null).run(sink);
+    }
+
+    final List<T> items;
+    final Fields fields;
+    final Encoder<T> encoder;
+    final Encoder<T> partial;
+    final long timeout;
+    final Semaphore permits;
+    final Function<? super T,Semaphore> store;
+
+    /** security context of the caller, shared with the workers */
+    final SecurityContext context;
+
+    /** next item to hand out, at or past the end once all are handed out or the rest abandoned */
+    final AtomicInteger next = new AtomicInteger();
+
+    /** when each item was started, 0 until then */
+    final AtomicLongArray started;
+
+    /** items completed, published by the workers along with their result */
+    final BlockingQueue<Integer> done = new LinkedBlockingQueue<Integer>();
+    final JSONObj[] results;
+    final Throwable[] errors;
+
+    /** threads encoding each item, guarded by the array itself */
+    final Thread[] running;
+
+    /** items replaced by partial entries, counted by the calling thread */
+    int failures;
+
+    ParallelEncoder(List<T> items, Fields fields, Encoder<T> encoder, Encoder<T> partial, long timeout,
+        Semaphore permits, Function<? super T,Semaphore> store) {
+        this.items = items;
+        this.fields = fields;
+        this.encoder = encoder;
+        this.partial = partial;
+        this.timeout = timeout;
+        this.permits = permits;
+        this.store = store;
+        this.context = SecurityContextHolder.getContext();
+        this.started = new AtomicLongArray(items.size());
+        this.results = new JSONObj[items.size()];
+        this.errors = new Throwable[items.size()];
+        this.running = new Thread[items.size()];
+    }
+
+    /**
+     * Encodes one item per run, then queues itself again until the items run out. When the queue is full it
+     * carries on with the next item on the same thread instead.
+     */
+    class Worker implements Runnable {
+        @Override
+        public void run() {
+            SecurityContext previous = SecurityContextHolder.getContext();
+            SecurityContextHolder.setContext(context);
+            try {
+                while (true) {
+                    int i = next.getAndIncrement();
+                    if (i >= items.size()) {
+                        permits.release();
+                        return;
+                    }
+                    encode(i);
+                    done.add(i);
+
+                    try {
+                        EXECUTOR.execute(this);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        continue;
+                    }
+                }
+            }
+            finally {
+                SecurityContextHolder.setContext(previous);
+            }
+        }
+    }
+
+    void encode(int i) {
+        started.set(i, System.currentTimeMillis());
+        synchronized (running) {
+            running[i] = Thread.currentThread();
+        }
+        try {
+            T item = items.get(i);
+            Semaphore permit = store != null ? store.apply(item) : null;
+            if (permit != null && !permit.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new IOException(BUSY);
+            }
+            try {
+                JSONObj obj = new JSONObj().fields(fields);
+                encoder.encode(obj, item);
+                resolve(obj);
+                results[i] = obj;
+            }
+            finally {
+                if (permit != null) {
+                    permit.release();
+                }
+            }
+        } catch (Throwable e) {
+            errors[i] = e;
+        }
+        finally {
+            synchronized (running) {
+                running[i] = null;
+            }
+            // clears an interrupt meant for this item, which may have come too late to stop it
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Interrupts the thread encoding an item, if it is still at it.
+     */
+    void cancel(int i) {
+        synchronized (running) {
+            if (running[i] != null) {
+                running[i].interrupt();
+            }
+        }
+    }
+
+    void run(Sink sink) throws IOException {
+        int n = items.size();
+        boolean[] emitted = new boolean[n];
+        boolean[] late = new boolean[n];
+        int count = 0;
+
+        try {
+            int acquired = 0;
+            while (acquired < n && permits.tryAcquire()) {
+                acquired++;
+            }
+            if (acquired == 0 && n > 0 && permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                acquired = 1;
+            }
+            int workers = 0;
+            try {
+                for (; workers < acquired; workers++) {
+                    EXECUTOR.execute(new Worker());
+                }
+            } catch (RejectedExecutionException e) {
+                // the pool queue is full, make do with the workers already queued
+                permits.release(acquired - workers);
+            }
+
+            // items that timed out but still hold up their worker
+            int stuck = 0;
+            long progress = System.currentTimeMillis();
+            int claimed = 0;
+            int low = 0;
+            while (count < n) {
+                long now = System.currentTimeMillis();
+
+                int c = Math.min(next.get(), n);
+                if (c > claimed) {
+                    claimed = c;
+                    progress = now;
+                }
+
+                // until the next item times out, or the remaining ones are given up on
+                long wait = claimed < n ? progress + timeout - now : timeout;
+                for (int i = low; i < claimed; i++) {
+                    if (emitted[i]) {
+                        continue;
+                    }
+                    long s = started.get(i);
+                    long deadline = (s != 0 ? s : now) + timeout;
+                    if (deadline <= now) {
+                        emitted[i] = late[i] = true;
+                        count++;
+                        stuck++;
+                        cancel(i);
+                        sink.add(i, failed(i, String.format("Timed out after %d ms", timeout), true));
+                    }
+                    else {
+                        wait = Math.min(wait, deadline - now);
+                    }
+                }
+                while (low < claimed && emitted[low]) {
+                    low++;
+                }
+
+                if (claimed < n && workers == 0) {
+                    // no worker could be queued at all
+                    count += abandon(emitted, sink, BUSY);
+                    continue;
+                }
+                if (claimed < n && (stuck >= workers || progress + timeout <= now)) {
+                    // no worker left to start the remaining items, or none started in time
+                    count += abandon(emitted, sink, String.format("Timed out after %d ms", timeout));
+                    continue;
+                }
+
+                Integer i = done.poll(Math.max(wait, 1), TimeUnit.MILLISECONDS);
+                if (i == null) {
+                    continue;
+                }
+                progress = System.currentTimeMillis();
+                if (emitted[i]) {
+                    if (late[i]) {
+                        // completed after timing out, its worker is free again
+                        stuck--;
+                    }
+                    continue;
+                }
+
+                emitted[i] = true;
+                count++;
+                if (errors[i] != null) {
+                    LOG.log(Level.WARNING, "Error encoding " + items.get(i), errors[i]);
+                    sink.add(i, failed(i, errors[i].getMessage(), false));
+                }
+                else {
+                    sink.add(i, results[i]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(emitted, sink, "Interrupted");
+            for (int i = 0; i < n; i++) {
+                if (!emitted[i]) {
+                    cancel(i);
+                    sink.add(i, failed(i, "Interrupted", false));
+                }
+            }
+        }
+        finally {
+            next.set(n);
+        }
+    }
+
+    /**
+     * Stops handing out items, replacing the ones not started yet by partial entries.
+     *
+     * @return The number of entries added.
+     */
+    int abandon(boolean[] emitted, Sink sink, String error) throws IOException {
+        int n = items.size();
+        int from = Math.min(next.getAndSet(n), n);
+
+        int count = 0;
+        for (int i = from; i < n; i++) {
+            if (!emitted[i]) {
+                emitted[i] = true;
+                count++;
+                sink.add(i, failed(i, error, true));
+            }
+        }
+        return count;
+    }
+
+    JSONObj failed(int i, String error, boolean timedOut) throws IOException {
+        failures++;
+        JSONObj obj = new JSONObj().fields(fields);
+        partial.encode(obj, items.get(i));
+        obj.putObject("error")
+           .put("message", error != null ? error : "Unknown error")
+           .put("timeout", timedOut);
+        return obj;
+    }
+
+    /**
+     * Computes the deferred values of an object and the objects nested in it.
+     */
+    static void resolve(Object obj) {
+        obj = JSONWrapper.wrapOrSelf(obj);
+        if (obj instanceof JSONObj) {
+            JSONObj o = (JSONObj) obj;
+            for (String key : o.keys()) {
+                resolve(o.get(key));
+            }
+        }
+        else if (obj instanceof JSONArr) {
+            for (Object item : (JSONArr) obj) {
+                resolve(item);
+            }
+        }
+    }
+}
@@ -3,17 +3,23 @@
  */
 package com.boundlessgeo.geoserver.api.controllers;
 
+import com.boundlessgeo.geoserver.api.catalog.BoundsService;
+import com.boundlessgeo.geoserver.api.catalog.CapabilitiesCache;
+import com.boundlessgeo.geoserver.api.catalog.CatalogCounts;
+import com.boundlessgeo.geoserver.api.catalog.CatalogCounts.Count;
+import com.boundlessgeo.geoserver.api.catalog.CatalogWarmUp;
+import com.boundlessgeo.geoserver.api.catalog.PublishedIndex;
+import com.boundlessgeo.geoserver.api.catalog.ResourceNameCache;
+import com.boundlessgeo.geoserver.api.catalog.SchemaCache;
+import com.boundlessgeo.geoserver.api.catalog.StoreAccess;
+import com.boundlessgeo.geoserver.api.catalog.StoreDetailsCache;
 import com.boundlessgeo.geoserver.json.JSONArr;
 import com.boundlessgeo.geoserver.json.JSONObj;
-import org.geoserver.catalog.Catalog;
-import org.geoserver.catalog.LayerGroupInfo;
-import org.geoserver.catalog.LayerInfo;
-import org.geoserver.catalog.WorkspaceInfo;
+import com.boundlessgeo.geoserver.util.CRSCache;
 import org.geoserver.config.GeoServer;
 import org.geoserver.config.ServiceInfo;
 import org.geoserver.config.SettingsInfo;
 import org.geotools.util.Version;
-import org.opengis.filter.Filter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -27,9 +33,31 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @RequestMapping("/api/serverInfo")
 public class ServerInfoController extends ApiController {
 
+    SchemaCache schemas;
+    CatalogWarmUp warmUp;
+    CatalogCounts counts;
+    BoundsService bounds;
+    ResourceNameCache resourceNames;
+    StoreDetailsCache storeDetails;
+    CapabilitiesCache capabilities;
+    PublishedIndex published;
+    StoreAccess access;
+
     @Autowired
-    public ServerInfoController(GeoServer geoServer) {
+    public ServerInfoController(GeoServer geoServer, SchemaCache schemas, CatalogWarmUp warmUp,
+        CatalogCounts counts, BoundsService bounds, ResourceNameCache resourceNames,
+        StoreDetailsCache storeDetails, CapabilitiesCache capabilities, PublishedIndex published,
+        StoreAccess access) {
         super(geoServer);
+        this.schemas = schemas;
+        this.warmUp = warmUp;
+        this.counts = counts;
+        this.bounds = bounds;
+        this.resourceNames = resourceNames;
+        this.storeDetails = storeDetails;
+        this.capabilities = capabilities;
+        this.published = published;
+        this.access = access;
     }
 
     @RequestMapping(method= RequestMethod.GET)
@@ -53,11 +81,61 @@ public class ServerInfoController extends ApiController {
             }
         }
 
-        Catalog cat = geoServer.getCatalog();
+        Count workspaces = counts.workspaces();
+        Count layers = counts.layers();
+        Count maps = counts.maps();
         obj.putObject("catalog")
-           .put("workspaces", cat.count(WorkspaceInfo.class, Filter.INCLUDE))
-           .put("layers", cat.count(LayerInfo.class, Filter.INCLUDE))
-           .put("maps", cat.count(LayerGroupInfo.class, Filter.INCLUDE));
+           .put("workspaces", workspaces.value())
+           .put("layers", layers.value())
+           .put("maps", maps.value())
+           .put("exact", workspaces.exact() && layers.exact() && maps.exact());
+
+        CRSCache crs = CRSCache.get();
+        obj.putObject("caches").putObject("crs")
+           .put("size", crs.size())
+           .put("hits", crs.hits())
+           .put("misses", crs.misses());
+        obj.object("caches").putObject("srs")
+           .put("size", crs.decodeSize())
+           .put("hits", crs.decodeHits())
+           .put("misses", crs.decodeMisses());
+        obj.object("caches").putObject("schema")
+           .put("size", schemas.size())
+           .put("hits", schemas.hits())
+           .put("misses", schemas.misses());
+        obj.object("caches").putObject("resources")
+           .put("size", resourceNames.size())
+           .put("hits", resourceNames.hits())
+           .put("misses", resourceNames.misses());
+        obj.object("caches").putObject("stores")
+           .put("size", storeDetails.size())
+           .put("hits", storeDetails.hits())
+           .put("misses", storeDetails.misses());
+        obj.object("caches").putObject("capabilities")
+           .put("size", capabilities.size())
+           .put("hits", capabilities.hits())
+           .put("misses", capabilities.misses())
+           .put("revalidated", capabilities.revalidated());
+        obj.object("caches").putObject("published")
+           .put("size", published.size())
+           .put("hits", published.hits())
+           .put("misses", published.misses());
+
+        obj.putObject("warmup")
+           .put("state", warmUp.state().name().toLowerCase())
+           .put("total", warmUp.total())
+           .put("completed", warmUp.completed())
+           .put("failed", warmUp.failed())
+           .put("elapsed", warmUp.elapsed());
+
+        obj.putObject("bounds")
+           .put("pending", bounds.pending())
+           .put("computed", bounds.computed())
+           .put("failed", bounds.failed());
+
+        obj.putObject("stores")
+           .put("active", access.active())
+           .put("rejected", access.rejected());
 
         return obj;
     }
@@ -3,23 +3,26 @@
  */
 package com.boundlessgeo.geoserver.api.controllers;
 
-import static org.geoserver.catalog.Predicates.and;
 import static org.geoserver.catalog.Predicates.equal;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.geoserver.catalog.CascadeDeleteVisitor;
 import org.geoserver.catalog.Catalog;
@@ -33,7 +36,6 @@ import org.geoserver.catalog.ResourcePool;
 import org.geoserver.catalog.StoreInfo;
 import org.geoserver.catalog.WMSStoreInfo;
 import org.geoserver.catalog.WorkspaceInfo;
-import org.geoserver.catalog.util.CloseableIterator;
 import org.geoserver.config.GeoServer;
 import org.geoserver.platform.GeoServerResourceLoader;
 import org.geoserver.platform.resource.Files;
@@ -43,17 +45,14 @@ import org.geotools.coverage.grid.io.GridCoverage2DReader;
 import org.geotools.data.DataAccess;
 import org.geotools.data.DataAccessFinder;
 import org.geotools.data.DataStore;
-import org.geotools.data.ows.Layer;
 import org.geotools.data.wms.WebMapServer;
 import org.geotools.feature.NameImpl;
 import org.geotools.util.Converters;
-import org.geotools.util.NullProgressListener;
 import org.geotools.util.logging.Logging;
 import org.opengis.coverage.grid.Format;
 import org.opengis.coverage.grid.GridCoverageReader;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.feature.type.Name;
-import org.opengis.filter.Filter;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -64,10 +63,24 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.boundlessgeo.geoserver.api.catalog.CapabilitiesCache;
+import com.boundlessgeo.geoserver.api.catalog.PublishedIndex;
+import com.boundlessgeo.geoserver.api.catalog.ResourceNameCache;
+import com.boundlessgeo.geoserver.api.catalog.StoreAccess;
+import com.boundlessgeo.geoserver.api.catalog.StoreDetailsCache;
+import com.boundlessgeo.geoserver.api.catalog.StoreHealth;
+import com.boundlessgeo.geoserver.api.converters.CBORMessageConverter;
+import com.boundlessgeo.geoserver.api.exceptions.BadRequestException;
+import com.boundlessgeo.geoserver.json.Fields;
 import com.boundlessgeo.geoserver.json.JSONArr;
 import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.json.NDJSONWriter;
+import com.boundlessgeo.geoserver.util.CircuitBreaker;
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 /**
  * Used to connect to data storage (file, database, or service).
@@ -81,16 +94,42 @@ import com.google.common.collect.Iterables;
  public class StoreController extends ApiController {
      static Logger LOG = Logging.getLogger(StoreController.class);
 
+    ResourceNameCache resourceNames;
+    StoreDetailsCache details;
+    StoreAccess access;
+    CapabilitiesCache capabilities;
+    StoreHealth health;
+    PublishedIndex published;
+
     @Autowired
-    public StoreController(GeoServer geoServer) {
+    public StoreController(GeoServer geoServer, ResourceNameCache resourceNames, StoreDetailsCache details,
+        StoreAccess access, CapabilitiesCache capabilities, StoreHealth health, PublishedIndex published) {
         super(geoServer);
+        this.resourceNames = resourceNames;
+        this.details = details;
+        this.access = access;
+        this.capabilities = capabilities;
+        this.health = health;
+        this.published = published;
     }
 
     @RequestMapping(value = "/{wsName}", method = RequestMethod.GET)
     public @ResponseBody
-    JSONArr list(@PathVariable String wsName){
-        JSONArr arr = new JSONArr();
+    JSONArr list(@PathVariable String wsName, HttpServletRequest req, HttpServletResponse res)
+        throws IOException {
         Catalog cat = geoServer.getCatalog();
+        if (streaming(req)) {
+            stream(cat.list(StoreInfo.class, equal("workspace.name", wsName)), fields(req),
+                new Encoder<StoreInfo>() {
+                    @Override
+                    public void encode(JSONObj obj, StoreInfo store) {
+                        store(obj, store);
+                    }
+                }, res);
+            return null;
+        }
+
+        JSONArr arr = new JSONArr().fields(fields(req));
         for (StoreInfo store : cat.getStoresByWorkspace(wsName, StoreInfo.class)) {
             store(arr.addObject(), store);
         }
@@ -99,18 +138,82 @@ import com.google.common.collect.Iterables;
     
     @RequestMapping(value = "/{wsName}/{name}", method = RequestMethod.GET)
     public @ResponseBody
-    JSONObj get(@PathVariable String wsName, @PathVariable String name) {
+    JSONObj get(@PathVariable String wsName, @PathVariable String name, HttpServletRequest req,
+        HttpServletResponse res) {
         StoreInfo store = findStore(wsName, name, geoServer.getCatalog());
         if (store == null) {
             throw new IllegalArgumentException("Store " + wsName + ":" + name + " not found");
         }
         try {
-            return storeDetails(new JSONObj(), store);
+            if (streaming(req)) {
+                streamDetails(new JSONObj().fields(fields(req)), store, res);
+                return null;
+            }
+
+            // refresh=true skips the caches, for changes made behind the store
+            Fields fields = fields(req);
+            boolean refresh = "true".equalsIgnoreCase(req.getParameter("refresh"));
+            if (refresh) {
+                details.evict(store);
+                resourceNames.evict(store);
+            }
+            JSONObj cached = refresh ? null : details.get(store, fields);
+            if (cached != null) {
+                // live state, not cached
+                return status(cached, store);
+            }
+            return cacheDetails(new JSONObj().fields(fields), store);
         } catch (IOException e) {
             throw new RuntimeException(String.format("Error occured accessing store: %s,%s",wsName, name), e);
         }
     }
     
+    /**
+     * Lists a page of the resources of a store, optionally narrowed to the names starting with the
+     * <tt>prefix</tt> parameter, ignoring case. Schemas are only looked up when the <tt>schema</tt> parameter is
+     * <tt>true</tt>.
+     * <p>
+     * This is how clients list the resources of a store, its details only embed them when the <tt>fields</tt>
+     * parameter names <tt>resources</tt>.
+     * </p>
+     */
+    @RequestMapping(value = "/{wsName}/{name}/resources", method = RequestMethod.GET)
+    public @ResponseBody
+    JSONObj resources(@PathVariable String wsName, @PathVariable String name, HttpServletRequest req)
+        throws IOException {
+        StoreInfo store = findStore(wsName, name, geoServer.getCatalog());
+        if (!store.isEnabled()) {
+            throw new BadRequestException("Store " + wsName + ":" + name + " is disabled");
+        }
+
+        List<String> names = resourceNames(store);
+        String prefix = req.getParameter("prefix");
+        if (prefix != null && !prefix.isEmpty()) {
+            List<String> matches = new ArrayList<String>();
+            String p = prefix.toLowerCase();
+            for (String resource : names) {
+                if (resource.toLowerCase().startsWith(p)) {
+                    matches.add(resource);
+                }
+            }
+            names = matches;
+        }
+
+        Integer page = page(req);
+        int count = count(req);
+        int offset = (int) Math.min(page != null ? (long) page * count : 0, names.size());
+        List<String> items = names.subList(offset, (int) Math.min((long) offset + count, names.size()));
+
+        JSONObj obj = new JSONObj();
+        obj.put("total", names.size())
+           .put("page", page != null ? page : 0)
+           .put("count", items.size());
+
+        boolean schema = "true".equalsIgnoreCase(req.getParameter("schema"));
+        resources(store, items, obj.putArray("resources").fields(fields(req)), schema);
+        return obj;
+    }
+
     @RequestMapping(value = "/{wsName}/{name}", method = RequestMethod.DELETE)
     public @ResponseBody
     JSONObj delete(@PathVariable String wsName, @PathVariable String name, HttpServletRequest req) {
@@ -175,7 +278,7 @@ import com.google.common.collect.Iterables;
             info.setURL(url);
             info.setType(obj.str("type"));
             try {
-                GridCoverageReader reader = info.getGridCoverageReader(null, null);
+                GridCoverageReader reader = access.coverageReader(info);
                 Format format = reader.getFormat();
                 info.setDescription( format.getDescription() );
                 info.setEnabled(true);
@@ -195,7 +298,7 @@ import com.google.common.collect.Iterables;
             // connect and defaults
             info.setCapabilitiesURL(params.str("url"));
             try {
-                WebMapServer service = info.getWebMapServer(new NullProgressListener());
+                WebMapServer service = access.webMapServer(info);
                 info.setDescription( service.getInfo().getDescription() );
                 info.setEnabled(true);
             } catch (Throwable e) {
@@ -230,7 +333,9 @@ import com.google.common.collect.Iterables;
         }
         cat.add(store);
         
-        return storeDetails(new JSONObj(), store);
+        JSONObj json = new JSONObj();
+        storeDetails(json, store);
+        return json;
     }
     @RequestMapping(value="/{wsName}/{name}", method = RequestMethod.PATCH)
     public @ResponseBody JSONObj patch(@PathVariable String wsName, @PathVariable String name, @RequestBody JSONObj obj) throws IOException {
@@ -239,11 +344,12 @@ import com.google.common.collect.Iterables;
         
         boolean refresh = define( store, obj );
         cat.save( store );
-        return storeDetails(new JSONObj(), store);
+        details.evict(store);
+        return cacheDetails(new JSONObj(), store);
     }
     
     @SuppressWarnings("unchecked")
-    @RequestMapping(value="/{wsName}/{name}", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @RequestMapping(value="/{wsName}/{name}", method = RequestMethod.PUT, consumes = {MediaType.APPLICATION_JSON_VALUE, CBORMessageConverter.MEDIA_TYPE_VALUE})
     public @ResponseBody JSONObj put(@PathVariable String wsName, @PathVariable String name, @RequestBody JSONObj obj) throws IOException {
         Catalog cat = geoServer.getCatalog();
         StoreInfo store = cat.getStoreByName(wsName, name, StoreInfo.class );
@@ -251,7 +357,8 @@ import com.google.common.collect.Iterables;
         // pending: clear store to defaults
         boolean refresh = define( store, obj );
         cat.save( store );
-        return storeDetails(new JSONObj(), store);
+        details.evict(store);
+        return cacheDetails(new JSONObj(), store);
     }
     
     boolean define( StoreInfo store, JSONObj obj ){
@@ -385,15 +492,153 @@ import com.google.common.collect.Iterables;
             .put("description", store.getDescription())
             .put("format", store.getType());
         
-        String source = source(store);
+        String source = obj.fields().has("source") ? source(store) : null;
         obj.put("source", source )
            .put("type", Type.of(store).name())
            .put("kind", Kind.of(store).name());   
 
+        status(obj, store);
+
         return IO.metadata(obj, store);
     }
 
-    JSONObj storeDetails(JSONObj json, StoreInfo store) throws IOException {
+    /**
+     * Encodes the store details, with its resources if the projection names them.
+     *
+     * @return Whether the details are complete, <tt>false</tt> if the schema of some resource is missing,
+     *   timed out or failed.
+     */
+    boolean storeDetails(JSONObj json, StoreInfo store) throws IOException {
+        details(json, store);
+
+        if(store.isEnabled() && embedResources(json.fields())){
+            return resources(store, resourceNames(store), json.putArray("resources"), true) == 0;
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the resources are embedded in the store details, only when the projection names them so
+     * that the details do not grow with the store. Clients page through them with <tt>/resources</tt> instead.
+     */
+    boolean embedResources(Fields fields) {
+        return !fields.isAll() && fields.has("resources");
+    }
+
+    /**
+     * Encodes the store details and caches them, unless they are incomplete, which are then encoded again on
+     * the next request.
+     * <p>
+     * The version of the store in the cache is taken before encoding, so that details encoded while the store
+     * changed are not cached, see {@link StoreDetailsCache#put(StoreInfo, long, JSONObj)}.
+     * </p>
+     * @return The details passed in, resolved.
+     */
+    JSONObj cacheDetails(JSONObj json, StoreInfo store) throws IOException {
+        long version = details.version(store);
+        boolean complete = storeDetails(json, store);
+        ParallelEncoder.resolve(json);
+
+        if (complete) {
+            details.put(store, version, json);
+        }
+        return json;
+    }
+
+    /**
+     * Writes the store details as newline delimited JSON, listing its resources by name on the first line and
+     * following with one line per resource, with its schema and layers, as soon as it is probed. Resources are
+     * only listed when the projection names them, see {@link #embedResources(Fields)}.
+     */
+    void streamDetails(JSONObj json, StoreInfo store, HttpServletResponse res) throws IOException {
+        details(json, store);
+
+        boolean embed = store.isEnabled() && embedResources(json.fields());
+        List<String> names = embed ? resourceNames(store) : Collections.<String>emptyList();
+        JSONArr resources = embed ? json.putArray("resources") : new JSONArr().fields(json.fields().get("resources"));
+        for (String resource : names) {
+            resources.addObject().put("name", resource);
+        }
+
+        res.setContentType(NDJSONWriter.MEDIA_TYPE_VALUE);
+        res.setCharacterEncoding("UTF-8");
+
+        final NDJSONWriter out = new NDJSONWriter(res.getOutputStream());
+        try {
+            out.write(json);
+            out.flush();
+
+            ParallelEncoder.encode(names, resources.fields(), resourceEncoder(store, true),
+                RESOURCE_NAME, ParallelEncoder.TIMEOUT, ParallelEncoder.permits(store), new ParallelEncoder.Sink() {
+                    @Override
+                    public void add(int index, JSONObj obj) throws IOException {
+                        out.write(obj);
+                        out.flush();
+                    }
+                });
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Encodes the state of the breaker and the health of a store, both kept in memory.
+     *
+     * @return The object passed in.
+     */
+    JSONObj status(JSONObj obj, StoreInfo store) {
+        if (obj.fields().has("circuit")) {
+            circuit(obj.putObject("circuit"), access.existing(store));
+        }
+        if (obj.fields().has("health")) {
+            health(obj.putObject("health"), health.health(store));
+        }
+        return obj;
+    }
+
+    /**
+     * Encodes the outcome of the background probes of a store, see {@link StoreHealth}.
+     */
+    JSONObj health(JSONObj obj, StoreHealth.Health h) {
+        if (h == null) {
+            return obj.put("probed", false);
+        }
+        obj.put("probed", true)
+           .put("latency", h.latency() >= 0 ? h.latency() : null)
+           .put("failures", h.failures())
+           .put("error", h.error());
+        if (h.lastProbe() != null) {
+            IO.date(obj.putObject("lastProbe"), h.lastProbe());
+        }
+        if (h.lastSuccess() != null) {
+            IO.date(obj.putObject("lastSuccess"), h.lastSuccess());
+        }
+        if (h.lastFailure() != null) {
+            IO.date(obj.putObject("lastFailure"), h.lastFailure());
+        }
+        return obj;
+    }
+
+    /**
+     * Encodes the state of the breaker guarding access to a store, closed if the store was not accessed yet.
+     */
+    JSONObj circuit(JSONObj obj, CircuitBreaker breaker) {
+        obj.put("state", (breaker != null ? breaker.state() : CircuitBreaker.State.CLOSED).name().toLowerCase())
+           .put("failures", breaker != null ? breaker.failures() : 0);
+        if (breaker != null && breaker.error() != null) {
+            obj.put("error", breaker.error());
+        }
+        if (breaker != null && breaker.retry() != null) {
+            IO.date(obj.putObject("retry"), breaker.retry());
+        }
+        return obj;
+    }
+
+    /**
+     * Encodes the store details, all but its resources.
+     */
+    JSONObj details(JSONObj json, StoreInfo store) throws IOException {
         store(json, store);
 
         JSONObj connection = new JSONObj();
@@ -414,89 +659,137 @@ import com.google.common.collect.Iterables;
             json.put("wms", info.getCapabilitiesURL());
         }
         json.put("connection", connection );
-        json.put("error", IO.error( new JSONObj(), store.getError()));
-        layers(store, json.putArray("layers"));
-
-        if(store.isEnabled()){
-            resources(store, json.putArray("resources"));
+        json.put("error", IO.error( new JSONObj(), store.getError(), true));
+        if (json.fields().has("layers")) {
+            layers(store, json.putArray("layers"));
         }
-
         return json;
     }
 
     JSONArr layers(StoreInfo store, JSONArr list) throws IOException {
-        Catalog cat = geoServer.getCatalog();
-        WorkspaceInfo ws = store.getWorkspace();
+        for (ResourceInfo r : published.resources(store)) {
+            layer( list.addObject(), r, false );
+        }
+        return list;
+    }
 
-        Filter filter = and(equal("store", store), equal("namespace.prefix", ws.getName()));
-        try (
-            CloseableIterator<ResourceInfo> layers = cat.list(ResourceInfo.class, filter);
-        ) {
-            while(layers.hasNext()) {
-                ResourceInfo r = layers.next();
-                layer( list.addObject(), r, false );
-            }
+    /**
+     * Encodes resources of a store into the specified array.
+     * <p>
+     * When the schema is included and the array {@link JSONArr#fields()} select it, resources are probed
+     * concurrently by {@link ParallelEncoder}, since the schema is looked up from the store, up to
+     * {@link ParallelEncoder#PROBES} at a time for the store. A resource that times out is encoded by name with an
+     * <tt>error</tt> object.
+     * </p>
+     * @param names Native names of the resources.
+     * @param schema Whether to include the schema.
+     *
+     * @return The number of resources encoded with an error instead of their schema.
+     */
+    int resources(StoreInfo store, List<String> names, JSONArr list, boolean schema) throws IOException {
+        if (!schema || !list.fields().has("schema")) {
+            for (String resource : names) {
+                resource(list.addObject(), store, resource, schema);
+            }
+            return 0;
         }
 
-        return list;
+        return ParallelEncoder.encode(names, list, resourceEncoder(store, true), RESOURCE_NAME,
+            ParallelEncoder.TIMEOUT, ParallelEncoder.permits(store));
     }
 
-    JSONArr resources(StoreInfo store, JSONArr list) throws IOException {
-        Catalog cat = geoServer.getCatalog();
-        WorkspaceInfo ws = store.getWorkspace();
+    Encoder<String> resourceEncoder(final StoreInfo store, final boolean schema) {
+        return new Encoder<String>() {
+            @Override
+            public void encode(JSONObj obj, String resource) {
+                resource(obj, store, resource, schema);
+            }
+        };
+    }
 
-        for (String resource : listResources(store)) {
-            JSONObj obj = list.addObject();
+    static final Encoder<String> RESOURCE_NAME = new Encoder<String>() {
+        @Override
+        public void encode(JSONObj obj, String resource) {
             obj.put("name", resource);
+        }
+    };
+
+    JSONObj resource(final JSONObj obj, final StoreInfo store, final String resource, boolean schema) {
+        obj.put("name", resource);
+        if (schema) {
+            obj.put("schema", new Supplier<JSONObj>() {
+                @Override
+                public JSONObj get() {
+                    try {
+                        return schema(new JSONObj().fields(obj.fields().get("schema")), store, resource);
+                    } catch (IOException e) {
+                        // fails the resource, which is then encoded with an error
+                        throw Throwables.propagate(e);
+                    }
+                }
+            });
+        }
+        obj.put("layers", new Supplier<JSONArr>() {
+            @Override
+            public JSONArr get() {
+                return published(store, resource, new JSONArr().fields(obj.fields().get("layers")));
+            }
+        });
+        return obj;
+    }
+
+    /**
+     * Encodes the schema of a resource, looked up from the store through its {@link StoreAccess} breaker.
+     */
+    JSONObj schema(JSONObj schema, StoreInfo store, final String resource) throws IOException {
+        if(store instanceof DataStoreInfo){
+            DataStoreInfo data = (DataStoreInfo) store;
             
-            if(store instanceof DataStoreInfo){
-                DataStoreInfo data = (DataStoreInfo) store;
-                
-                @SuppressWarnings("rawtypes")
-                DataAccess dataStore = data.getDataStore(new NullProgressListener());
-                
-                FeatureType schema = dataStore instanceof DataStore
+            @SuppressWarnings("rawtypes")
+            final DataAccess dataStore = access.dataStore(data);
+            
+            FeatureType featureType = access.call(store, new Callable<FeatureType>() {
+                @Override
+                public FeatureType call() throws Exception {
+                    return dataStore instanceof DataStore
                         ? ((DataStore)dataStore).getSchema(resource)
                         : dataStore.getSchema( new NameImpl(resource) );
-                
-                IO.schema( obj.putObject("schema"), schema, false );
-            }
-            if(store instanceof CoverageStoreInfo){
-                CoverageStoreInfo data = (CoverageStoreInfo) store;
-                GridCoverageReader r = data.getGridCoverageReader(null, null);
-                if( r instanceof GridCoverage2DReader){
-                    GridCoverage2DReader reader = (GridCoverage2DReader) r;
-                    CoordinateReferenceSystem crs = reader.getCoordinateReferenceSystem(resource);
-                    IO.schemaGrid( obj.putObject("schema"), crs, false );
-                }
-                else {
-                    IO.schemaGrid( obj.putObject("schema"), AbstractGridFormat.getDefaultCRS(), false);
                 }
+            });
+            if (featureType == null) {
+                throw new IOException("No schema for " + resource);
             }
             
-            JSONArr layers = obj.putArray("layers");
-            if (store instanceof CoverageStoreInfo) {
-                // coverage store does not respect native name so we search by id
-                for (CoverageInfo info : cat.getCoveragesByCoverageStore((CoverageStoreInfo) store)) {               
-                    layer( layers.addObject(), info, false );
-                }
+            IO.schema( schema, featureType, false );
+        }
+        if(store instanceof CoverageStoreInfo){
+            CoverageStoreInfo data = (CoverageStoreInfo) store;
+            GridCoverageReader r = access.coverageReader(data);
+            if( r instanceof GridCoverage2DReader){
+                final GridCoverage2DReader reader = (GridCoverage2DReader) r;
+                CoordinateReferenceSystem crs = access.call(store, new Callable<CoordinateReferenceSystem>() {
+                    @Override
+                    public CoordinateReferenceSystem call() throws Exception {
+                        return reader.getCoordinateReferenceSystem(resource);
+                    }
+                });
+                IO.schemaGrid( schema, crs, false );
             }
             else {
-                Filter filter = and(equal("namespace.prefix", ws.getName()),equal("nativeName", resource));
-                try (
-                    CloseableIterator<ResourceInfo> published = cat.list(ResourceInfo.class, filter);
-                ) {
-                    while (published.hasNext()) {
-                        ResourceInfo info = published.next();
-                        if (!info.getStore().getId().equals(store.getId())) {
-                            continue; // native name is not enough, double check store id
-                        }
-                        layer( layers.addObject(), info, false );
-                    }
-                }
+                IO.schemaGrid( schema, AbstractGridFormat.getDefaultCRS(), false);
             }
         }
-        return list;
+        return schema;
+    }
+
+    JSONArr published(StoreInfo store, String resource, JSONArr layers) {
+        // coverage store does not respect native name, all its coverages are listed
+        List<ResourceInfo> resources = store instanceof CoverageStoreInfo
+            ? published.resources(store) : published.resources(store, resource);
+        for (ResourceInfo info : resources) {
+            layer( layers.addObject(), info, false );
+        }
+        return layers;
     }
     
     JSONObj layer( JSONObj json, ResourceInfo info, boolean details ){
@@ -519,7 +812,35 @@ import com.google.common.collect.Iterables;
        return json;
     }
 
-    Iterable<String> listResources(StoreInfo store) throws IOException {
+    /**
+     * Native names of the resources of a store, listed from the store once and then cached.
+     */
+    List<String> resourceNames(final StoreInfo store) throws IOException {
+        return resourceNames.names(store, new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                return listResources(store);
+            }
+        });
+    }
+
+    /**
+     * Lists the native names of the resources of a store, through its {@link StoreAccess} breaker, or the
+     * {@link CapabilitiesCache} for a cascaded WMS.
+     */
+    List<String> listResources(final StoreInfo store) throws IOException {
+        if (store instanceof WMSStoreInfo) {
+            return capabilities.layers((WMSStoreInfo) store);
+        }
+        return access.call(store, new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                return Lists.newArrayList(names(store));
+            }
+        });
+    }
+
+    Iterable<String> names(StoreInfo store) throws IOException {
         if (store instanceof DataStoreInfo) {
             return Iterables.transform(((DataStoreInfo) store).getDataStore(null).getNames(),
                 new Function<Name, String>() {
@@ -533,16 +854,6 @@ import com.google.common.collect.Iterables;
         else if (store instanceof CoverageStoreInfo) {
             return Arrays.asList(((CoverageStoreInfo) store).getGridCoverageReader(null, null).getGridCoverageNames());
         }
-        else if (store instanceof WMSStoreInfo) {
-            return Iterables.transform(((WMSStoreInfo) store).getWebMapServer(null).getCapabilities().getLayerList(),
-                new Function<Layer, String>() {
-                    @Nullable
-                    @Override
-                    public String apply(@Nullable Layer input) {
-                        return input.getName();
-                    }
-                });
-        }
 
         throw new IllegalStateException("Unrecognized store type");
     }
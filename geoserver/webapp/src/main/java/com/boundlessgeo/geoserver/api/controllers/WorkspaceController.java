@@ -12,7 +12,11 @@ import org.geoserver.catalog.Predicates;
 import org.geoserver.catalog.WorkspaceInfo;
 import org.geoserver.catalog.util.CloseableIterator;
 import org.geoserver.config.GeoServer;
+import com.boundlessgeo.geoserver.api.catalog.CatalogVersions;
+import com.boundlessgeo.geoserver.api.converters.CBORMessageConverter;
 import com.boundlessgeo.geoserver.api.exceptions.BadRequestException;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -24,25 +28,67 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+import java.util.Iterator;
+
 @Controller
 @RequestMapping("/api/workspaces")
 public class WorkspaceController extends ApiController {
 
+    CatalogVersions versions;
+
     @Autowired
-    public WorkspaceController(GeoServer geoServer) {
+    public WorkspaceController(GeoServer geoServer, CatalogVersions versions) {
         super(geoServer);
+        this.versions = versions;
     }
 
     @RequestMapping(method = RequestMethod.GET)
     public @ResponseBody
-    JSONArr list() {
-        JSONArr arr = new JSONArr();
+    JSONArr list(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        long version = versions.version();
+        if (notModified(version, req, res)) {
+            return null;
+        }
 
         Catalog cat = geoServer.getCatalog();
 
-        WorkspaceInfo def = cat.getDefaultWorkspace();
+        final WorkspaceInfo def = cat.getDefaultWorkspace();
+        if (streaming(req)) {
+            // tagged up front as written while encoded
+            tag(version, req, res);
+
+            // default workspace first, as in the regular response
+            CloseableIterator<WorkspaceInfo> it = cat.list(WorkspaceInfo.class, Predicates.acceptAll());
+            try {
+                Iterator<WorkspaceInfo> others = Iterators.filter(it, new Predicate<WorkspaceInfo>() {
+                    @Override
+                    public boolean apply(@Nullable WorkspaceInfo ws) {
+                        return def == null || !ws.getName().equals(def.getName());
+                    }
+                });
+                Iterator<WorkspaceInfo> all = def != null
+                    ? Iterators.concat(Iterators.singletonIterator(def), others) : others;
+
+                stream(all, fields(req), new Encoder<WorkspaceInfo>() {
+                    @Override
+                    public void encode(JSONObj obj, WorkspaceInfo ws) {
+                        IO.workspace(obj, ws, namespaceFor(ws), ws == def);
+                    }
+                }, res);
+            }
+            finally {
+                it.close();
+            }
+            return null;
+        }
+
+        JSONArr arr = new JSONArr().fields(fields(req));
+
         if (def != null) {
            IO.workspace(arr.addObject(), def, namespaceFor(def), true);
         }
@@ -67,10 +113,11 @@ public class WorkspaceController extends ApiController {
             list.close();
         }
 
+        tag(version, req, res);
         return arr;
     }
 
-    @RequestMapping(method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @RequestMapping(method = RequestMethod.POST, consumes = {MediaType.APPLICATION_JSON_VALUE, CBORMessageConverter.MEDIA_TYPE_VALUE})
     @ResponseStatus(HttpStatus.CREATED)
     public @ResponseBody
     JSONObj create(@RequestBody JSONObj obj) {
@@ -107,13 +154,22 @@ public class WorkspaceController extends ApiController {
     }
 
     @RequestMapping(value = "/{wsName}", method = RequestMethod.GET)
-    public @ResponseBody JSONObj get(@PathVariable String wsName) {
+    public @ResponseBody JSONObj get(@PathVariable String wsName, HttpServletRequest req,
+                                     HttpServletResponse res) {
         Catalog cat = geoServer.getCatalog();
 
         WorkspaceInfo ws = findWorkspace(wsName, cat);
+        long version = versions.version();
+        if (notModified(version, req, res)) {
+            return null;
+        }
+
         WorkspaceInfo def = cat.getDefaultWorkspace();
 
-        return IO.workspace(new JSONObj(), ws, namespaceFor(ws), def != null && def.equals(ws));
+        JSONObj obj =
+            IO.workspace(new JSONObj().fields(fields(req)), ws, namespaceFor(ws), def != null && def.equals(ws));
+        tag(version, req, res);
+        return obj;
     }
 
     @RequestMapping(value = "/{wsName}", method = RequestMethod.PATCH)
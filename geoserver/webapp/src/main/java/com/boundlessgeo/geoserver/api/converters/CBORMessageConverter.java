@@ -0,0 +1,79 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.converters;
+
+import com.boundlessgeo.geoserver.api.exceptions.RequestTooLargeException;
+import com.boundlessgeo.geoserver.json.CBOR;
+import com.boundlessgeo.geoserver.json.JSONTooLargeException;
+import com.boundlessgeo.geoserver.json.JSONWrapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+
+/**
+ * Parses/encodes the binary CBOR equivalent of JSON.
+ * <p>
+ * Selected when a client sends or accepts <tt>application/cbor</tt>, JSON remains the default.
+ * </p>
+ * <p>
+ * Request bodies larger than {@link #getMaxSize()} are rejected with a 413 status, as they are for JSON.
+ * </p>
+ */
+public class CBORMessageConverter extends AbstractHttpMessageConverter<JSONWrapper> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/cbor";
+
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE_VALUE);
+
+    long maxSize = JSONMessageConverter.DEFAULT_MAX_SIZE;
+
+    public CBORMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    /**
+     * Maximum size in bytes of a request body, a negative value for no limit.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return JSONWrapper.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected JSONWrapper readInternal(Class<? extends JSONWrapper> clazz, HttpInputMessage message) throws IOException, HttpMessageNotReadableException {
+        long length = message.getHeaders().getContentLength();
+        if (maxSize >= 0 && length > maxSize) {
+            throw tooLarge();
+        }
+
+        try {
+            return CBOR.read(message.getBody(), maxSize);
+        }
+        catch(JSONTooLargeException e) {
+            throw tooLarge();
+        }
+    }
+
+    RequestTooLargeException tooLarge() {
+        return new RequestTooLargeException(String.format("Request body exceeds limit of %d bytes", maxSize));
+    }
+
+    @Override
+    protected void writeInternal(JSONWrapper obj, HttpOutputMessage message) throws IOException, HttpMessageNotWritableException {
+        CBOR.write(obj, message.getBody());
+    }
+}
@@ -3,6 +3,8 @@
  */
 package com.boundlessgeo.geoserver.api.converters;
 
+import com.boundlessgeo.geoserver.api.exceptions.RequestTooLargeException;
+import com.boundlessgeo.geoserver.json.JSONTooLargeException;
 import com.boundlessgeo.geoserver.json.JSONWrapper;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpOutputMessage;
@@ -15,13 +17,32 @@ import java.io.IOException;
 
 /**
  * Parses/encodes JSON.
+ * <p>
+ * Request bodies larger than {@link #getMaxSize()} are rejected with a 413 status.
+ * </p>
  */
 public class JSONMessageConverter extends AbstractHttpMessageConverter<JSONWrapper> {
 
+    /** default limit on the size of request bodies, 16MB */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    long maxSize = DEFAULT_MAX_SIZE;
+
     public JSONMessageConverter() {
         super(MediaType.APPLICATION_JSON);
     }
 
+    /**
+     * Maximum size in bytes of a request body, a negative value for no limit.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
     @Override
     protected boolean supports(Class<?> clazz) {
         return JSONWrapper.class.isAssignableFrom(clazz);
@@ -29,7 +50,21 @@ public class JSONMessageConverter extends AbstractHttpMessageConverter<JSONWrapp
 
     @Override
     protected JSONWrapper readInternal(Class<? extends JSONWrapper> clazz, HttpInputMessage message) throws IOException, HttpMessageNotReadableException {
-        return JSONWrapper.read(message.getBody());
+        long length = message.getHeaders().getContentLength();
+        if (maxSize >= 0 && length > maxSize) {
+            throw tooLarge();
+        }
+
+        try {
+            return JSONWrapper.read(message.getBody(), maxSize);
+        }
+        catch(JSONTooLargeException e) {
+            throw tooLarge();
+        }
+    }
+
+    RequestTooLargeException tooLarge() {
+        return new RequestTooLargeException(String.format("Request body exceeds limit of %d bytes", maxSize));
     }
 
     @Override
@@ -5,6 +5,7 @@ package com.boundlessgeo.geoserver.api.exceptions;
 
 import com.boundlessgeo.geoserver.api.controllers.IO;
 import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.util.CircuitBreaker;
 import com.google.common.base.Throwables;
 
 import org.geotools.util.logging.Logging;
@@ -40,6 +41,15 @@ public class AppExceptionHandler {
 
     HttpStatus status(Exception e) {
         ResponseStatus status = e.getClass().getAnnotation(ResponseStatus.class);
-        return status != null ? status.value() : HttpStatus.INTERNAL_SERVER_ERROR;
+        if (status != null) {
+            return status.value();
+        }
+        // a store refusing calls, possibly wrapped by the controller
+        for (Throwable t : Throwables.getCausalChain(e)) {
+            if (t instanceof CircuitBreaker.OpenException) {
+                return HttpStatus.SERVICE_UNAVAILABLE;
+            }
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
     }
 }
@@ -0,0 +1,22 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Request Entity Too Large (413) error.
+ */
+@ResponseStatus(value = HttpStatus.REQUEST_ENTITY_TOO_LARGE)
+public class RequestTooLargeException extends RuntimeException {
+
+    public RequestTooLargeException(String message) {
+        this(message, null);
+    }
+
+    public RequestTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,510 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+
+/**
+ * Encodes/decodes wrappers as <a href="http://tools.ietf.org/html/rfc7049">CBOR</a>, a binary equivalent of
+ * JSON.
+ * <p>
+ * Objects and arrays are encoded with indefinite length so they are streamed like their JSON counterparts,
+ * including deferred values and projections. Decoding produces the same structures as
+ * {@link JSONWrapper#read(InputStream)}: integers are decoded as longs and floating point numbers as doubles.
+ * </p>
+ */
+public class CBOR {
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** maximum nesting of arrays and objects accepted when decoding */
+    static final int MAX_DEPTH = 256;
+
+    /** text buffer allocated up front when decoding, grown as the text is actually read */
+    static final int TEXT_CHUNK = 8192;
+
+    static final int UINT = 0;
+    static final int NINT = 1;
+    static final int BYTES = 2;
+    static final int TEXT = 3;
+    static final int ARRAY = 4;
+    static final int MAP = 5;
+    static final int TAG = 6;
+    static final int SIMPLE = 7;
+
+    static final int INDEFINITE = 31;
+    static final int BREAK = 0xFF;
+
+    /**
+     * Encodes a wrapper as CBOR.
+     *
+     * @param obj The wrapper.
+     * @param output Target output stream.
+     */
+    public static void write(JSONWrapper<?> obj, OutputStream output) throws IOException {
+        CBOR cbor = new CBOR(output);
+        try {
+            cbor.value(obj);
+            cbor.flush();
+        }
+        finally {
+            cbor.release();
+        }
+    }
+
+    /**
+     * Decodes CBOR content returning a wrapper.
+     *
+     * @param input Input CBOR.
+     *
+     * @return The wrapper.
+     */
+    public static JSONWrapper<?> read(InputStream input) throws IOException {
+        return read(input, -1);
+    }
+
+    /**
+     * Decodes CBOR content returning a wrapper, reading no more than <tt>limit</tt> bytes.
+     * <p>
+     * Lengths declared by the content are checked against the bytes left before anything is allocated for them.
+     * </p>
+     *
+     * @param input Input CBOR.
+     * @param limit Maximum size of the content in bytes, a negative value for no limit.
+     *
+     * @return The wrapper.
+     *
+     * @throws JSONTooLargeException If the content is larger than the limit.
+     */
+    public static JSONWrapper<?> read(InputStream input, long limit) throws IOException {
+        return JSONWrapper.wrap(new Decoder(input, limit).item(0));
+    }
+
+    OutputStream out;
+    byte[] buf;
+    int pos;
+
+    CBOR(OutputStream out) {
+        this.out = out;
+        this.buf = JSONStreamWriter.POOL.get();
+        if (buf != null) {
+            JSONStreamWriter.POOL.remove();
+        }
+        else {
+            buf = new byte[JSONStreamWriter.BUFFER_SIZE];
+        }
+    }
+
+    void value(Object value) throws IOException {
+        value = JSONWrapper.wrapOrSelf(value);
+        if (value == null) {
+            put(0xF6);
+        }
+        else if (value instanceof JSONObj) {
+            object((JSONObj) value);
+        }
+        else if (value instanceof JSONArr) {
+            array(((JSONArr) value).raw());
+        }
+        else if (value instanceof String) {
+            text((String) value);
+        }
+        else if (value instanceof Boolean) {
+            put(((Boolean) value) ? 0xF5 : 0xF4);
+        }
+        else if (value instanceof Number) {
+            number((Number) value);
+        }
+        else if (value instanceof Map) {
+            object(new JSONObj(new JSONMap((Map<?,?>) value)));
+        }
+        else if (value instanceof Collection) {
+            array((Collection<?>) value);
+        }
+        else {
+            text(value.toString());
+        }
+    }
+
+    void object(JSONObj obj) throws IOException {
+        put((MAP << 5) | INDEFINITE);
+        for (String key : obj.keys()) {
+            Object value = obj.value(key);
+            if (obj.omitted(key)) {
+                continue;
+            }
+            text(key);
+            value(value);
+        }
+        put(BREAK);
+    }
+
+    void array(Collection<?> items) throws IOException {
+        put((ARRAY << 5) | INDEFINITE);
+        for (Object item : items) {
+            value(item);
+        }
+        put(BREAK);
+    }
+
+    void number(Number n) throws IOException {
+        if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte
+            || (n instanceof BigInteger && ((BigInteger) n).bitLength() < 64)) {
+            long l = n.longValue();
+            if (l >= 0) {
+                head(UINT, l);
+            }
+            else {
+                head(NINT, -1 - l);
+            }
+        }
+        else if (n instanceof Float) {
+            ensure(5);
+            int bits = Float.floatToIntBits(n.floatValue());
+            buf[pos++] = (byte) 0xFA;
+            for (int i = 3; i >= 0; i--) {
+                buf[pos++] = (byte) (bits >>> (i * 8));
+            }
+        }
+        else if (n instanceof BigInteger) {
+            // out of range for a CBOR integer, preserve all digits
+            text(n.toString());
+        }
+        else {
+            double d = n.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                // same as JSON encoding
+                put(0xF6);
+                return;
+            }
+            ensure(9);
+            long bits = Double.doubleToLongBits(d);
+            buf[pos++] = (byte) 0xFB;
+            for (int i = 7; i >= 0; i--) {
+                buf[pos++] = (byte) (bits >>> (i * 8));
+            }
+        }
+    }
+
+    void text(String str) throws IOException {
+        int len = str.length();
+
+        // compute encoded length up front so the string is encoded without an intermediate byte array
+        long size = 0;
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            }
+            else if (c < 0x800) {
+                size += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i+1 < len && Character.isLowSurrogate(str.charAt(i+1))) {
+                size += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c)) {
+                size += 1;
+            }
+            else {
+                size += 3;
+            }
+        }
+
+        head(TEXT, size);
+        for (int i = 0; i < len; i++) {
+            ensure(4);
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i+1 < len && Character.isLowSurrogate(str.charAt(i+1))) {
+                int cp = Character.toCodePoint(c, str.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                // unpaired surrogate
+                buf[pos++] = '?';
+            }
+            else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    void head(int major, long value) throws IOException {
+        ensure(9);
+        int type = major << 5;
+        if (value < 24) {
+            buf[pos++] = (byte) (type | value);
+        }
+        else if (value <= 0xFFL) {
+            buf[pos++] = (byte) (type | 24);
+            buf[pos++] = (byte) value;
+        }
+        else if (value <= 0xFFFFL) {
+            buf[pos++] = (byte) (type | 25);
+            buf[pos++] = (byte) (value >> 8);
+            buf[pos++] = (byte) value;
+        }
+        else if (value <= 0xFFFFFFFFL) {
+            buf[pos++] = (byte) (type | 26);
+            for (int i = 3; i >= 0; i--) {
+                buf[pos++] = (byte) (value >>> (i * 8));
+            }
+        }
+        else {
+            buf[pos++] = (byte) (type | 27);
+            for (int i = 7; i >= 0; i--) {
+                buf[pos++] = (byte) (value >>> (i * 8));
+            }
+        }
+    }
+
+    void put(int b) throws IOException {
+        ensure(1);
+        buf[pos++] = (byte) b;
+    }
+
+    void ensure(int n) throws IOException {
+        if (pos + n > buf.length) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    void flush() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+        out.flush();
+    }
+
+    void release() {
+        if (buf != null) {
+            pos = 0;
+            JSONStreamWriter.POOL.set(buf);
+            buf = null;
+        }
+    }
+
+    /**
+     * Reads CBOR items into json-simple structures.
+     */
+    static class Decoder {
+
+        InputStream in;
+
+        /** maximum number of bytes to read, negative for no limit */
+        long limit;
+
+        /** number of bytes read so far */
+        long read;
+
+        Decoder(InputStream in, long limit) {
+            this.in = in;
+            this.limit = limit;
+        }
+
+        Object item(int depth) throws IOException {
+            int b = read();
+            if (b == BREAK) {
+                throw new IOException("Unexpected break");
+            }
+            return item(b, depth);
+        }
+
+        @SuppressWarnings("unchecked")
+        Object item(int b, int depth) throws IOException {
+            int major = b >> 5;
+            int info = b & 0x1F;
+
+            switch(major) {
+                case UINT:
+                    return length(info);
+                case NINT:
+                    return -1 - length(info);
+                case TEXT:
+                    return text(info);
+                case ARRAY: {
+                    check(depth);
+                    JSONArray arr = new JSONArray();
+                    if (info == INDEFINITE) {
+                        for (int c = read(); c != BREAK; c = read()) {
+                            arr.add(item(c, depth+1));
+                        }
+                    }
+                    else {
+                        for (long i = length(info); i > 0; i--) {
+                            arr.add(item(depth+1));
+                        }
+                    }
+                    return arr;
+                }
+                case MAP: {
+                    check(depth);
+                    JSONMap obj = new JSONMap();
+                    if (info == INDEFINITE) {
+                        for (int c = read(); c != BREAK; c = read()) {
+                            obj.put(key(c), item(depth+1));
+                        }
+                    }
+                    else {
+                        for (long i = length(info); i > 0; i--) {
+                            obj.put(key(read()), item(depth+1));
+                        }
+                    }
+                    return obj;
+                }
+                case TAG:
+                    // semantic tags are ignored, the tagged item counts as nested so chains of tags are bounded too
+                    check(depth);
+                    length(info);
+                    return item(depth+1);
+                case SIMPLE:
+                    return simple(info);
+                default:
+                    throw new IOException("Unsupported CBOR major type: " + major);
+            }
+        }
+
+        String key(int b) throws IOException {
+            if (b >> 5 != TEXT) {
+                throw new IOException("Object keys must be text");
+            }
+            return text(b & 0x1F);
+        }
+
+        String text(int info) throws IOException {
+            if (info == INDEFINITE) {
+                StringBuilder sb = new StringBuilder();
+                for (int c = read(); c != BREAK; c = read()) {
+                    if (c >> 5 != TEXT || (c & 0x1F) == INDEFINITE) {
+                        throw new IOException("Invalid text chunk");
+                    }
+                    sb.append(text(c & 0x1F));
+                }
+                return sb.toString();
+            }
+
+            long len = length(info);
+            if (limit >= 0 && len > limit - read) {
+                throw new JSONTooLargeException(limit);
+            }
+            if (len > Integer.MAX_VALUE) {
+                throw new IOException("Text too long: " + len);
+            }
+
+            // the declared length is not trusted, the buffer only grows with the bytes actually read
+            byte[] bytes = new byte[(int) Math.min(len, TEXT_CHUNK)];
+            int off = 0;
+            while (off < len) {
+                if (off == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(len, bytes.length * 2L));
+                }
+                int n = in.read(bytes, off, bytes.length - off);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                off += n;
+                read += n;
+            }
+            return new String(bytes, UTF8);
+        }
+
+        Object simple(int info) throws IOException {
+            switch(info) {
+                case 20: return Boolean.FALSE;
+                case 21: return Boolean.TRUE;
+                case 22:
+                case 23: return null;
+                case 25: return (double) half((int) bytes(2));
+                case 26: return (double) Float.intBitsToFloat((int) bytes(4));
+                case 27: return Double.longBitsToDouble(bytes(8));
+                default:
+                    throw new IOException("Unsupported CBOR simple value: " + info);
+            }
+        }
+
+        float half(int bits) {
+            int exp = (bits >> 10) & 0x1F;
+            int mant = bits & 0x3FF;
+            float val;
+            if (exp == 0) {
+                val = mant * (float) Math.pow(2, -24);
+            }
+            else if (exp != 31) {
+                val = (mant + 1024) * (float) Math.pow(2, exp - 25);
+            }
+            else {
+                val = mant == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+            }
+            return (bits & 0x8000) != 0 ? -val : val;
+        }
+
+        long length(int info) throws IOException {
+            if (info < 24) {
+                return info;
+            }
+            switch(info) {
+                case 24: return bytes(1);
+                case 25: return bytes(2);
+                case 26: return bytes(4);
+                case 27:
+                    long l = bytes(8);
+                    if (l < 0) {
+                        throw new IOException("Unsupported CBOR integer, out of range");
+                    }
+                    return l;
+                default:
+                    throw new IOException("Invalid CBOR length: " + info);
+            }
+        }
+
+        long bytes(int n) throws IOException {
+            long l = 0;
+            for (int i = 0; i < n; i++) {
+                l = (l << 8) | read();
+            }
+            return l;
+        }
+
+        int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of CBOR content");
+            }
+            if (limit >= 0 && ++read > limit) {
+                throw new JSONTooLargeException(limit);
+            }
+            return b;
+        }
+
+        void check(int depth) throws IOException {
+            if (depth >= MAX_DEPTH) {
+                throw new IOException("CBOR content nested too deeply");
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Projection of the properties of a JSON object, as requested by a client.
+ * <p>
+ * Parsed from a comma separated list of property paths, with nested properties separated by a dot. For
+ * example <tt>name,title,schema.attributes,proj.srs</tt>. Naming a property without a nested path selects the
+ * whole property.
+ * </p>
+ * <p>
+ * Wrappers carry a projection (see {@link JSONWrapper#fields()}) and silently drop properties that are not
+ * part of it, so encoders can also consult it to skip computing those properties at all.
+ * </p>
+ */
+public class Fields {
+
+    /**
+     * Selects every property.
+     */
+    public static final Fields ALL = new Fields(null);
+
+    /**
+     * Selects no property.
+     */
+    public static final Fields NONE = new Fields(Collections.<String,Fields>emptyMap());
+
+    /**
+     * Parses a projection, returning {@link #ALL} for a <tt>null</tt> or empty specification.
+     */
+    public static Fields parse(String spec) {
+        if (spec == null) {
+            return ALL;
+        }
+
+        Fields root = new Fields(new LinkedHashMap<String,Fields>());
+        for (String path : spec.split(",")) {
+            path = path.trim();
+            if (!path.isEmpty()) {
+                root.add(path.split("\\."), 0);
+            }
+        }
+        return root.children.isEmpty() ? ALL : root;
+    }
+
+    /** selected properties, <tt>null</tt> when all are selected */
+    final Map<String,Fields> children;
+
+    Fields(Map<String,Fields> children) {
+        this.children = children;
+    }
+
+    void add(String[] path, int i) {
+        String key = path[i].trim();
+        if (i == path.length - 1) {
+            children.put(key, ALL);
+            return;
+        }
+
+        Fields child = children.get(key);
+        if (child == ALL) {
+            // whole property already selected
+            return;
+        }
+        if (child == null) {
+            child = new Fields(new LinkedHashMap<String,Fields>());
+            children.put(key, child);
+        }
+        child.add(path, i+1);
+    }
+
+    /**
+     * Determines if every property is selected.
+     */
+    public boolean isAll() {
+        return children == null;
+    }
+
+    /**
+     * Determines if the specified property is selected.
+     */
+    public boolean has(String key) {
+        return children == null || children.containsKey(key);
+    }
+
+    /**
+     * Projection for the value of the specified property, {@link #NONE} if the property is not selected.
+     */
+    public Fields get(String key) {
+        if (children == null) {
+            return ALL;
+        }
+        Fields child = children.get(key);
+        return child != null ? child : NONE;
+    }
+
+    @Override
+    public String toString() {
+        return children == null ? "*" : children.toString();
+    }
+}
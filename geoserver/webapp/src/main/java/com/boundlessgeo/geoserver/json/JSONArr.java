@@ -64,6 +64,16 @@ public class JSONArr extends JSONWrapper<JSONArray> implements Iterable<Object>
         return JSONWrapper.wrap(at(i)).toObject();
     }
 
+    /**
+     * Sets the projection applied to the objects created with {@link #addObject()}.
+     *
+     * @return This array.
+     */
+    public JSONArr fields(Fields fields) {
+        this.fields = fields;
+        return this;
+    }
+
     /**
      * Adds a raw object ot the underlying array.
      *
@@ -76,11 +86,13 @@ public class JSONArr extends JSONWrapper<JSONArray> implements Iterable<Object>
 
     /**
      * Adds a new object to the array and returns a wrapper.
-     *
+     * <p>
+     * The new object shares the {@link #fields()} of the array.
+     * </p>
      * @return The new object wrapper.
      */
     public JSONObj addObject() {
-        JSONObj obj = new JSONObj();
+        JSONObj obj = new JSONObj().fields(fields);
         raw.add(obj);
         return obj;
     }
@@ -126,27 +138,19 @@ public class JSONArr extends JSONWrapper<JSONArray> implements Iterable<Object>
     void write(Writer out) throws IOException {
         if (raw == null) {
             out.write("null");
-        } else {
-            boolean first = true;
-            Iterator iter = iterator();
-            out.write('[');
-            while (iter.hasNext()) {
-                if (first)
-                    first = false;
-                else
-                    out.write(',');
-
-                Object value = iter.next();
-                if (value == null) {
-                    out.write("null");
-                    continue;
-                }
-                value = wrapOrSelf(value);
-                JSONWrapper.write(value, out);
-            }
-            out.write(']');
+            return;
+        }
+
+        boolean first = true;
+        out.write('[');
+        for (Object value : raw) {
+            if (first)
+                first = false;
+            else
+                out.write(',');
 
+            JSONWrapper.write(value, out);
         }
-        out.flush();
+        out.write(']');
     }
 }
@@ -0,0 +1,285 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import org.json.simple.JSONAware;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Insertion ordered map backing {@link JSONObj}, tuned for the handful of properties of a typical JSON object.
+ * <p>
+ * Keys and values are held in two parallel arrays in insertion order, which is also the iteration order, with no
+ * per entry objects. Objects with up to {@link #SCAN_LIMIT} properties are looked up by scanning the keys,
+ * which are mostly string constants and match by identity. Larger objects add an open addressing hash index of
+ * the key positions.
+ * </p>
+ */
+public class JSONMap extends AbstractMap<String,Object> implements JSONAware, JSONStreamAware {
+
+    /** number of keys up to which lookups scan the keys rather than use a hash index */
+    static final int SCAN_LIMIT = 16;
+
+    static final int DEFAULT_CAPACITY = 8;
+
+    String[] keys;
+    Object[] values;
+    int size;
+
+    /** positions + 1 of the keys, by hash with linear probing, <tt>null</tt> up to {@link #SCAN_LIMIT} keys */
+    int[] index;
+
+    public JSONMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public JSONMap(int capacity) {
+        keys = new String[Math.max(capacity, 1)];
+        values = new Object[keys.length];
+    }
+
+    /**
+     * Creates a copy of the specified map, keys are converted to strings.
+     */
+    public JSONMap(Map<?,?> map) {
+        this(map.size());
+        for (Map.Entry<?,?> e : map.entrySet()) {
+            put(String.valueOf(e.getKey()), e.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = find(key);
+        return i >= 0 ? values[i] : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int i = find(key);
+        if (i >= 0) {
+            Object old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+
+        if (index != null && size * 2 <= index.length) {
+            insert(size - 1);
+        }
+        else if (size > SCAN_LIMIT) {
+            reindex();
+        }
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int i = find(key);
+        return i >= 0 ? removeAt(i) : null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        index = null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Cursor<String>() {
+                    @Override
+                    String at(int i) {
+                        return keys[i];
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String,Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String,Object>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String,Object>> iterator() {
+                return new Cursor<Map.Entry<String,Object>>() {
+                    @Override
+                    Map.Entry<String,Object> at(final int i) {
+                        return new SimpleEntry<String,Object>(keys[i], values[i]) {
+                            @Override
+                            public Object setValue(Object value) {
+                                values[i] = value;
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    int find(Object key) {
+        if (key != null && !(key instanceof String)) {
+            return -1;
+        }
+
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                String k = keys[i];
+                if (k == key || (key != null && key.equals(k))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = index.length - 1;
+        for (int h = hash(key) & mask; ; h = (h + 1) & mask) {
+            int p = index[h];
+            if (p == 0) {
+                return -1;
+            }
+            String k = keys[p - 1];
+            if (k == key || (key != null && key.equals(k))) {
+                return p - 1;
+            }
+        }
+    }
+
+    Object removeAt(int i) {
+        Object old = values[i];
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+
+        if (size > SCAN_LIMIT) {
+            reindex();
+        }
+        else {
+            index = null;
+        }
+        return old;
+    }
+
+    void reindex() {
+        // at most half full
+        index = new int[Integer.highestOneBit(size) << 2];
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    void insert(int i) {
+        int mask = index.length - 1;
+        int h = hash(keys[i]) & mask;
+        while (index[h] != 0) {
+            h = (h + 1) & mask;
+        }
+        index[h] = i + 1;
+    }
+
+    static int hash(Object key) {
+        int h = key != null ? key.hashCode() : 0;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toJSONString() {
+        return JSONObject.toJSONString(this);
+    }
+
+    @Override
+    public void writeJSONString(Writer out) throws IOException {
+        JSONObject.writeJSONString(this, out);
+    }
+
+    @Override
+    public String toString() {
+        return toJSONString();
+    }
+
+    /**
+     * Iterator over the entry positions.
+     */
+    abstract class Cursor<E> implements Iterator<E> {
+
+        int next = 0;
+        int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public E next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return at(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+
+        abstract E at(int i);
+    }
+}
@@ -4,51 +4,61 @@
 package com.boundlessgeo.geoserver.json;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.Writer;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+import com.google.common.base.Supplier;
 
 /**
- * Wrapper object for {@link org.json.simple.JSONObject}.
+ * Wrapper object for {@link JSONMap}.
+ * <p>
+ * Properties are kept, and encoded, in the order they are added.
+ * </p>
+ * <p>
+ * Deferred values are computed at most once, under the lock of the underlying map, so an object that is no
+ * longer modified may be read and encoded from several threads. A thread reading a property that is being
+ * computed waits for it.
+ * </p>
  */
-public class JSONObj extends JSONWrapper<JSONObject> {
-    List<String> order;
+public class JSONObj extends JSONWrapper<JSONMap> {
+
+    /** marker for deferred values that computed to nothing */
+    static final Object OMITTED = new Object();
+
     public JSONObj() {
-        this(new JSONObject());
-        order = new ArrayList<String>();
+        this(new JSONMap());
     }
 
-    public JSONObj(JSONObject obj) {
+    public JSONObj(JSONMap obj) {
         super(obj);
     }
 
     /**
-     * Keys for the object.
+     * Keys for the object, in insertion order.
      */
     public Iterable<String> keys() {
-        if( order != null ){
-            return order;
-        }
         return raw.keySet();
     }
 
     /**
      * Determines if the object has the specified property.
+     * <p>
+     * A deferred value is computed, the property is reported missing if it turns out empty.
+     * </p>
      */
     public boolean has(String key) {
-        return raw.containsKey(key);
+        synchronized (raw) {
+            return raw.containsKey(key) && (value(key) != null || !omitted(key));
+        }
     }
 
     /**
      * Gets the raw property mapped to <tt>key</tt>, or <tt>null</tt> if no such property exists.
+     * <p>
+     * A deferred value is computed on first access.
+     * </p>
      */
     public Object get(String key) {
-        return raw.get(key);
+        return value(key);
     }
 
     /**
@@ -94,89 +104,187 @@ public class JSONObj extends JSONWrapper<JSONObject> {
     }
 
     /**
-     * Sets the raw property key value pair.
+     * Sets the projection for the object, properties outside of it are ignored by {@link #put(String, Object)},
+     * {@link #putObject(String)} and {@link #putArray(String)}.
      *
      * @return This object.
      */
+    public JSONObj fields(Fields fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    /**
+     * Sets the raw property key value pair.
+     * <p>
+     * Properties outside the object {@link #fields()} are ignored.
+     * </p>
+     * <p>
+     * The value may be a {@link Supplier} in which case it is deferred: it is only computed when the
+     * property is accessed or encoded, and is omitted from the encoded object if it turns out empty. Use this
+     * for values that are expensive to compute.
+     * </p>
+     * @return This object.
+     */
     public JSONObj put(String key, Object val) {
-        if( !isEmpty(val)){
-            if( order != null && !raw.containsKey(key)){
-                order.add(key);
-            }
+        if( !isEmpty(val) && fields.has(key)){
             raw.put(key, val);
         }
         return this;
     }
     
+    /**
+     * Looks up the value for <tt>key</tt>, computing and remembering it if deferred.
+     */
+    Object value(String key) {
+        synchronized (raw) {
+            Object val = raw.get(key);
+            if (val instanceof Supplier) {
+                val = ((Supplier<?>) val).get();
+                if (isEmpty(val)) {
+                    val = OMITTED;
+                }
+                raw.put(key, val);
+            }
+            return val != OMITTED ? val : null;
+        }
+    }
+
+    /**
+     * Determines if the value for <tt>key</tt> was deferred and turned out empty.
+     */
+    boolean omitted(String key) {
+        synchronized (raw) {
+            return raw.get(key) == OMITTED;
+        }
+    }
+
+    /**
+     * Determines if the object has no property, computing deferred values only until one is not empty.
+     */
+    boolean empty() {
+        synchronized (raw) {
+            for (String key : keys()) {
+                value(key);
+                if (!omitted(key)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     private boolean isEmpty( Object val ){
         return val == null ||
-                (val instanceof JSONObj && ((JSONObj)val).size() == 0) ||
+                (val instanceof JSONObj && ((JSONObj)val).empty()) ||
                 (val instanceof JSONArr && ((JSONArr)val).size() == 0);
     }
 
     /**
      * Creates a new object mapped to <tt>key</tt> and returns the new object.
-     *
+     * <p>
+     * If <tt>key</tt> is outside the object {@link #fields()} the new object is not added and ignores
+     * every property.
+     * </p>
      * @return The new object wrapper.
      */
     public JSONObj putObject(String key) {
-        JSONObj obj = new JSONObj();
-        if( order != null && !raw.containsKey(key)){
-            order.add(key);
+        JSONObj obj = new JSONObj().fields(fields.get(key));
+        if (fields.has(key)) {
+            raw.put(key, obj.raw);
         }
-        raw.put(key, obj.raw);
         return obj;
     }
 
     /**
      * Creates a new array mapped to <tt>key</tt> and returns the new array.
-     *
+     * <p>
+     * If <tt>key</tt> is outside the object {@link #fields()} the new array is not added.
+     * </p>
      * @return The new array wrapper.
      */
     public JSONArr putArray(String key) {
-        JSONArr arr = new JSONArr();
-        if( order != null && !raw.containsKey(key)){
-            order.add(key);
+        JSONArr arr = new JSONArr().fields(fields.get(key));
+        if (fields.has(key)) {
+            raw.put(key, arr);
         }
-        raw.put(key, arr);
         return arr;
     }
 
+    /**
+     * Copies the properties of this object into another, honouring the {@link #fields()} of the target.
+     * <p>
+     * Nested objects and arrays are copied too, so the copies share nothing but immutable values. Deferred values
+     * are computed as they are copied, the copy of an object without deferred values leaves it untouched.
+     * </p>
+     * @return The target object.
+     */
+    public JSONObj copyTo(JSONObj target) {
+        for (String key : keys()) {
+            Object val = value(key);
+            if (val != null && target.fields.has(key)) {
+                target.put(key, copy(val, target.fields.get(key)));
+            }
+        }
+        return target;
+    }
+
+    static Object copy(Object val, Fields fields) {
+        val = wrapOrSelf(val);
+        if (val instanceof JSONObj) {
+            return ((JSONObj) val).copyTo(new JSONObj().fields(fields));
+        }
+        if (val instanceof JSONArr) {
+            JSONArr arr = new JSONArr().fields(fields);
+            for (Object item : (JSONArr) val) {
+                arr.add(copy(item, fields));
+            }
+            return arr;
+        }
+        return val;
+    }
+
+    /**
+     * Number of properties of the object, deferred values are computed and those that turn out empty are not
+     * counted.
+     */
     @Override
     public int size() {
-        return raw.size();
+        synchronized (raw) {
+            int size = 0;
+            for (String key : keys()) {
+                value(key);
+                if (!omitted(key)) {
+                    size++;
+                }
+            }
+            return size;
+        }
     }
     @Override
     void write(Writer out) throws IOException {
-        //this.raw().writeJSONString(out);
         if(raw == null){
             out.write("null");
+            return;
         }
-        else {
-            boolean first = true;
-            Iterable<String> keys = keys();
-            Iterator<String> iter = keys.iterator();
-    
-            out.write('{');
-            while (iter.hasNext()) {
-                if (first){
-                    first = false;
-                }
-                else{
-                    out.write(',');
-                }
-                String key = iter.next();
-                Object value = raw.get(key);
-                
-                
-                out.write('\"');
-                out.write(JSONObject.escape(key));
-                out.write('\"');
-                out.write(':');
-                JSONWrapper.write(value, out);
+
+        boolean first = true;
+        out.write('{');
+        for (String key : keys()) {
+            Object value = value(key);
+            if (omitted(key)) {
+                continue;
+            }
+            if (first){
+                first = false;
+            }
+            else{
+                out.write(',');
             }
-            out.write('}');
+            JSONWrapper.write(key, out);
+            out.write(':');
+            JSONWrapper.write(value, out);
         }
-        out.flush();
+        out.write('}');
     }
 }
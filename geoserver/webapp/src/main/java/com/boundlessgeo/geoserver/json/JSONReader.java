@@ -0,0 +1,344 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import org.json.simple.JSONArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Incremental parser for UTF-8 encoded JSON.
+ * <p>
+ * Bytes are pulled from the stream through a buffer borrowed from the pool of {@link JSONStreamWriter} and
+ * decoded as they are parsed, so the content is never held as a whole, neither as bytes nor as characters.
+ * Objects and arrays are built as they are parsed, as {@link JSONMap} and json-simple arrays. Values are typed
+ * like json-simple does: strings, {@link Long} or {@link Double} numbers, booleans and <tt>null</tt>.
+ * </p>
+ * <p>
+ * Reading stops with a {@link JSONTooLargeException} as soon as more bytes than the limit have been read.
+ * </p>
+ */
+class JSONReader {
+
+    /** maximum nesting of arrays and objects */
+    static final int MAX_DEPTH = 256;
+
+    InputStream in;
+    long limit;
+
+    byte[] buf;
+    int pos, end;
+
+    /** bytes read from the stream so far */
+    long read;
+
+    /** scratch space for strings and numbers */
+    StringBuilder sb = new StringBuilder();
+
+    /**
+     * @param limit Maximum number of bytes to read, a negative value for no limit.
+     */
+    JSONReader(InputStream in, long limit) {
+        this.in = in;
+        this.limit = limit;
+    }
+
+    /**
+     * Parses the single value making up the content.
+     */
+    Object parse() throws IOException {
+        buf = JSONStreamWriter.POOL.get();
+        if (buf != null) {
+            JSONStreamWriter.POOL.remove();
+        }
+        else {
+            buf = new byte[JSONStreamWriter.BUFFER_SIZE];
+        }
+
+        try {
+            Object value = value(skip(), 0);
+            int c = skip();
+            if (c != -1) {
+                throw error("Unexpected content after value: " + describe(c));
+            }
+            return value;
+        }
+        finally {
+            JSONStreamWriter.POOL.set(buf);
+            buf = null;
+        }
+    }
+
+    Object value(int c, int depth) throws IOException {
+        switch(c) {
+            case '{':
+                return object(depth + 1);
+            case '[':
+                return array(depth + 1);
+            case '"':
+                return string();
+            case 't':
+                literal("true");
+                return Boolean.TRUE;
+            case 'f':
+                literal("false");
+                return Boolean.FALSE;
+            case 'n':
+                literal("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return number(c);
+                }
+                throw error("Unexpected " + describe(c));
+        }
+    }
+
+    JSONMap object(int depth) throws IOException {
+        check(depth);
+
+        JSONMap obj = new JSONMap();
+        int c = skip();
+        if (c == '}') {
+            return obj;
+        }
+        while (true) {
+            if (c != '"') {
+                throw error("Expected property name but found " + describe(c));
+            }
+            String key = string();
+
+            c = skip();
+            if (c != ':') {
+                throw error("Expected ':' but found " + describe(c));
+            }
+            obj.put(key, value(skip(), depth));
+
+            c = skip();
+            if (c == '}') {
+                return obj;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}' but found " + describe(c));
+            }
+            c = skip();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    JSONArray array(int depth) throws IOException {
+        check(depth);
+
+        JSONArray arr = new JSONArray();
+        int c = skip();
+        if (c == ']') {
+            return arr;
+        }
+        while (true) {
+            arr.add(value(c, depth));
+
+            c = skip();
+            if (c == ']') {
+                return arr;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']' but found " + describe(c));
+            }
+            c = skip();
+        }
+    }
+
+    String string() throws IOException {
+        sb.setLength(0);
+        while (true) {
+            int b = next();
+            if (b == '"') {
+                return sb.toString();
+            }
+            if (b == '\\') {
+                escape();
+            }
+            else if (b < 0x80) {
+                if (b < 0) {
+                    throw error("Unterminated string");
+                }
+                sb.append((char) b);
+            }
+            else {
+                utf8(b);
+            }
+        }
+    }
+
+    void escape() throws IOException {
+        int b = next();
+        switch(b) {
+            case '"':
+            case '\\':
+            case '/':
+                sb.append((char) b);
+                break;
+            case 'b':
+                sb.append('\b');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'u':
+                int cp = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = Character.digit(next(), 16);
+                    if (h < 0) {
+                        throw error("Invalid unicode escape");
+                    }
+                    cp = (cp << 4) | h;
+                }
+                sb.append((char) cp);
+                break;
+            default:
+                throw error("Invalid escape: " + describe(b));
+        }
+    }
+
+    void utf8(int b) throws IOException {
+        // smallest code point of each sequence length, anything below is an overlong encoding
+        int cp, n, min;
+        if ((b & 0xE0) == 0xC0) {
+            cp = b & 0x1F;
+            n = 1;
+            min = 0x80;
+        }
+        else if ((b & 0xF0) == 0xE0) {
+            cp = b & 0x0F;
+            n = 2;
+            min = 0x800;
+        }
+        else if ((b & 0xF8) == 0xF0) {
+            cp = b & 0x07;
+            n = 3;
+            min = 0x10000;
+        }
+        else {
+            throw error("Invalid UTF-8 byte: " + describe(b));
+        }
+
+        for (int i = 0; i < n; i++) {
+            int c = next();
+            if ((c & 0xC0) != 0x80) {
+                throw error("Invalid UTF-8 sequence");
+            }
+            cp = (cp << 6) | (c & 0x3F);
+        }
+        if (cp < min) {
+            throw error("Overlong UTF-8 sequence");
+        }
+        if (!Character.isValidCodePoint(cp) || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)) {
+            throw error("Invalid UTF-8 code point: " + cp);
+        }
+        sb.appendCodePoint(cp);
+    }
+
+    Number number(int c) throws IOException {
+        sb.setLength(0);
+        sb.append((char) c);
+
+        boolean integral = true;
+        for (c = peek(); (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+             c = peek()) {
+            integral = integral && c != '.' && c != 'e' && c != 'E';
+            sb.append((char) c);
+            pos++;
+        }
+
+        String str = sb.toString();
+        try {
+            if (integral) {
+                try {
+                    return Long.valueOf(str);
+                }
+                catch(NumberFormatException e) {
+                    // too big for a long
+                }
+            }
+            return Double.valueOf(str);
+        }
+        catch(NumberFormatException e) {
+            throw error("Invalid number: " + str);
+        }
+    }
+
+    void literal(String lit) throws IOException {
+        // first character already consumed
+        for (int i = 1; i < lit.length(); i++) {
+            if (next() != lit.charAt(i)) {
+                throw error("Expected " + lit);
+            }
+        }
+    }
+
+    /**
+     * Next byte that is not whitespace, or -1 at the end of the content.
+     */
+    int skip() throws IOException {
+        int c = next();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            c = next();
+        }
+        return c;
+    }
+
+    int next() throws IOException {
+        if (pos == end && !fill()) {
+            return -1;
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    int peek() throws IOException {
+        if (pos == end && !fill()) {
+            return -1;
+        }
+        return buf[pos] & 0xFF;
+    }
+
+    boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) {
+            return false;
+        }
+
+        read += n;
+        if (limit >= 0 && read > limit) {
+            throw new JSONTooLargeException(limit);
+        }
+
+        pos = 0;
+        end = n;
+        return true;
+    }
+
+    void check(int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw error("JSON content nested too deeply");
+        }
+    }
+
+    String describe(int c) {
+        return c < 0 ? "end of content" : c < 0x80 ? String.format("'%c'", (char) c) : String.format("0x%X", c);
+    }
+
+    IOException error(String msg) {
+        return new IOException(String.format("Parsing error at byte %d: %s", read - end + pos, msg));
+    }
+}
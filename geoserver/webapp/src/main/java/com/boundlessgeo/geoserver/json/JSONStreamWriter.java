@@ -0,0 +1,137 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writer that encodes characters as UTF-8 directly into an output stream.
+ * <p>
+ * Bytes are staged in a buffer borrowed from a per thread pool, so encoding a response does not allocate a
+ * fresh buffer or charset encoder. The underlying stream is only written when the buffer fills up and is only
+ * flushed when {@link #flush()} is called explicitly.
+ * </p>
+ * <p>
+ * {@link #close()} hands the buffer back to the pool, it does not close the underlying stream.
+ * </p>
+ */
+class JSONStreamWriter extends Writer {
+
+    static final int BUFFER_SIZE = 8192;
+
+    static final ThreadLocal<byte[]> POOL = new ThreadLocal<byte[]>();
+
+    OutputStream out;
+    byte[] buf;
+    int pos;
+
+    /** pending high surrogate, or 0 */
+    char high;
+
+    JSONStreamWriter(OutputStream out) {
+        this.out = out;
+        this.buf = POOL.get();
+        if (buf != null) {
+            // take it out of the pool while in use, a nested writer on the same thread gets its own
+            POOL.remove();
+        }
+        else {
+            buf = new byte[BUFFER_SIZE];
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            encode(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            encode(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void write(String str) throws IOException {
+        write(str, 0, str.length());
+    }
+
+    void encode(char c) throws IOException {
+        if (pos + 4 > buf.length) {
+            drain();
+        }
+
+        if (high != 0) {
+            char h = high;
+            high = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(h, c);
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                return;
+            }
+            // unpaired surrogate
+            buf[pos++] = '?';
+            encode(c);
+            return;
+        }
+
+        if (c < 0x80) {
+            buf[pos++] = (byte) c;
+        }
+        else if (c < 0x800) {
+            buf[pos++] = (byte) (0xC0 | (c >> 6));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+        else if (Character.isHighSurrogate(c)) {
+            high = c;
+        }
+        else if (Character.isLowSurrogate(c)) {
+            buf[pos++] = '?';
+        }
+        else {
+            buf[pos++] = (byte) (0xE0 | (c >> 12));
+            buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (high != 0) {
+            high = 0;
+            buf[pos++] = '?';
+        }
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buf != null) {
+            pos = 0;
+            POOL.set(buf);
+            buf = null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import java.io.IOException;
+
+/**
+ * Thrown when JSON content exceeds the size limit it is read with.
+ */
+public class JSONTooLargeException extends IOException {
+
+    long limit;
+
+    public JSONTooLargeException(long limit) {
+        super(String.format("JSON content exceeds limit of %d bytes", limit));
+        this.limit = limit;
+    }
+
+    /**
+     * The limit, in bytes.
+     */
+    public long getLimit() {
+        return limit;
+    }
+}
@@ -8,19 +8,19 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONStreamAware;
 import org.json.simple.JSONValue;
+import org.json.simple.parser.ContainerFactory;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,7 +31,7 @@ public abstract class JSONWrapper<T extends JSONStreamAware> {
     /**
      * Wraps the specified object.
      *
-     * @param obj One of {@link org.json.simple.JSONObject} or {@link org.json.simple.JSONArray}.
+     * @param obj One of {@link JSONMap}, {@link org.json.simple.JSONObject} or {@link org.json.simple.JSONArray}.
      *
      * @return One of {@link JSONObj} or {@link JSONArr}.
      *
@@ -49,10 +49,16 @@ public abstract class JSONWrapper<T extends JSONStreamAware> {
 
     /**
      * Wraps the specified object, returning the original object if it is not one of the supported types.
+     * <p>
+     * A {@link JSONObject} is copied into a {@link JSONMap}, changes made through the wrapper do not apply to it.
+     * </p>
      */
     public static Object wrapOrSelf(Object obj) {
-        if (obj instanceof JSONObject) {
-            return new JSONObj((JSONObject) obj);
+        if (obj instanceof JSONMap) {
+            return new JSONObj((JSONMap) obj);
+        }
+        else if (obj instanceof JSONObject) {
+            return new JSONObj(new JSONMap((JSONObject) obj));
         }
         else if (obj instanceof JSONArray) {
             return new JSONArr((JSONArray) obj);
@@ -63,14 +69,25 @@ public abstract class JSONWrapper<T extends JSONStreamAware> {
     }
 
     /**
-     * Encodes a wrapper as JSON.
+     * Encodes a wrapper as UTF-8 JSON.
+     * <p>
+     * The content is streamed through a single pooled buffer and the output stream is flushed once, after the
+     * whole wrapper has been written.
+     * </p>
      *
      * @param obj The wrapper.
      * @param output Target output stream.
      *
      */
     public static void write(JSONWrapper<? extends JSONStreamAware> obj, OutputStream output) throws IOException {
-        write(obj, new OutputStreamWriter(output));
+        JSONStreamWriter out = new JSONStreamWriter(output);
+        try {
+            write(obj, out);
+            out.flush();
+        }
+        finally {
+            out.close();
+        }
     }
 
     /**
@@ -85,16 +102,60 @@ public abstract class JSONWrapper<T extends JSONStreamAware> {
         value = wrapOrSelf(value);
         if (value == null ) {
             out.write("null");
-            out.flush();
         }
         else if( value instanceof JSONWrapper){
             ((JSONWrapper<?>)value).write(out);
         }
+        else if (value instanceof String) {
+            write((String) value, out);
+        }
         else {
             JSONValue.writeJSONString(value, out);
         }
     }
 
+    /**
+     * Encodes a string as a quoted JSON string.
+     * <p>
+     * Escaping matches {@link JSONValue#escape(String)} but is written straight to the writer rather than
+     * building an escaped copy of the string.
+     * </p>
+     */
+    static void write(String str, Writer out) throws IOException {
+        out.write('"');
+        int start = 0;
+        int len = str.length();
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            String esc = null;
+            switch (c) {
+                case '"':  esc = "\\\""; break;
+                case '\\': esc = "\\\\"; break;
+                case '\b': esc = "\\b"; break;
+                case '\f': esc = "\\f"; break;
+                case '\n': esc = "\\n"; break;
+                case '\r': esc = "\\r"; break;
+                case '\t': esc = "\\t"; break;
+                case '/':  esc = "\\/"; break;
+                default:
+                    if ((c <= '\u001F') || (c >= '\u007F' && c <= '\u009F') || (c >= '\u2000' && c <= '\u20FF')) {
+                        esc = String.format("\\u%04X", (int) c);
+                    }
+            }
+            if (esc != null) {
+                if (i > start) {
+                    out.write(str, start, i - start);
+                }
+                out.write(esc);
+                start = i + 1;
+            }
+        }
+        if (len > start) {
+            out.write(str, start, len - start);
+        }
+        out.write('"');
+    }
+
     /**
      * Decodes JSON content returning a wrapper.
      *
@@ -107,14 +168,32 @@ public abstract class JSONWrapper<T extends JSONStreamAware> {
     }
 
     /**
-     * Decodes JSON content returning a wrapper.
+     * Decodes UTF-8 JSON content returning a wrapper.
      *
      * @param input Input JSON.
      *
      * @return The wrapper.
      */
     public static JSONWrapper<?> read(InputStream input) throws IOException {
-        return read(new InputStreamReader(input));
+        return read(input, -1);
+    }
+
+    /**
+     * Decodes UTF-8 JSON content returning a wrapper, reading no more than <tt>limit</tt> bytes.
+     * <p>
+     * The content is parsed incrementally as it is read, so content over the limit is rejected having buffered
+     * no more than a few kilobytes of it.
+     * </p>
+     *
+     * @param input Input JSON.
+     * @param limit Maximum size of the content in bytes, a negative value for no limit.
+     *
+     * @return The wrapper.
+     *
+     * @throws JSONTooLargeException If the content is larger than the limit.
+     */
+    public static JSONWrapper<?> read(InputStream input, long limit) throws IOException {
+        return wrap(new JSONReader(input, limit).parse());
     }
 
     /**
@@ -126,14 +205,34 @@ public abstract class JSONWrapper<T extends JSONStreamAware> {
      */
     public static JSONWrapper<?> read(Reader input) throws IOException {
         try {
-            return wrap(new JSONParser().parse(input));
+            return wrap(new JSONParser().parse(input, CONTAINERS));
         } catch (ParseException e) {
             throw new IOException("Parsing error", e);
         }
     }
 
+    /**
+     * Has the json-simple parser build objects as {@link JSONMap}.
+     */
+    static final ContainerFactory CONTAINERS = new ContainerFactory() {
+        @Override
+        public Map createObjectContainer() {
+            return new JSONMap();
+        }
+
+        @Override
+        public List creatArrayContainer() {
+            return new JSONArray();
+        }
+    };
+
     protected T raw;
 
+    /**
+     * Properties retained by this wrapper.
+     */
+    protected Fields fields = Fields.ALL;
+
     public JSONWrapper(T raw) {
         this.raw = raw;
     }
@@ -145,6 +244,16 @@ public abstract class JSONWrapper<T extends JSONStreamAware> {
         return raw;
     }
 
+    /**
+     * Projection applied to this wrapper, and inherited by the objects and arrays created through it.
+     * <p>
+     * Encoders should check it before computing expensive properties.
+     * </p>
+     */
+    public Fields fields() {
+        return fields;
+    }
+
     /**
      * Size of the object, either the number of properties of the object or size of the array.
      */
@@ -0,0 +1,65 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes newline delimited JSON (NDJSON), one UTF-8 encoded value per line.
+ * <p>
+ * Values are written through a single pooled buffer, which is drained to the underlying stream as it fills up.
+ * The first value is flushed right away so clients can start processing before the sequence is complete.
+ * </p>
+ * <p>
+ * {@link #close()} flushes and releases the buffer, it does not close the underlying stream.
+ * </p>
+ */
+public class NDJSONWriter implements Closeable, Flushable {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-ndjson";
+
+    JSONStreamWriter out;
+    long count;
+
+    public NDJSONWriter(OutputStream output) {
+        out = new JSONStreamWriter(output);
+    }
+
+    /**
+     * Writes a value on its own line.
+     */
+    public void write(JSONWrapper<?> value) throws IOException {
+        JSONWrapper.write(value, out);
+        out.write('\n');
+
+        if (count++ == 0) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Number of values written so far.
+     */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.flush();
+        }
+        finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.util;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.referencing.CRS;
+import org.geotools.util.logging.Logging;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+/**
+ * Cache of the coordinate reference system lookups made by the api.
+ * <p>
+ * Looking up the identifier of a crs may scan the whole EPSG database, so the outcome is cached along with the
+ * type and unit of the crs. Entries are looked up by crs instance first and then by WKT, so equal crs instances
+ * share an entry, crs that can not be formatted as WKT are only cached by instance. Both levels are bounded, and
+ * instances are weakly referenced.
+ * </p>
+ * <p>
+ * Decoding srs identifiers is cached too, see {@link #decode(String)}.
+ * </p>
+ */
+public class CRSCache {
+
+    static Logger LOG = Logging.getLogger(CRSCache.class);
+
+    /** default maximum number of entries */
+    public static final int MAX_SIZE = 1000;
+
+    static final CRSCache INSTANCE = new CRSCache(MAX_SIZE);
+
+    /**
+     * The cache shared by the api.
+     */
+    public static CRSCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Identifier, type and unit of a crs.
+     */
+    public static class Info {
+
+        final String srs;
+        final String type;
+        final String unit;
+
+        Info(String srs, String type, String unit) {
+            this.srs = srs;
+            this.type = type;
+            this.unit = unit;
+        }
+
+        /**
+         * Identifier of the crs, such as <tt>EPSG:4326</tt>, <tt>null</tt> if it could not be determined.
+         */
+        public String srs() {
+            return srs;
+        }
+
+        /**
+         * One of <tt>projected</tt>, <tt>geographic</tt> or <tt>other</tt>.
+         */
+        public String type() {
+            return type;
+        }
+
+        /**
+         * One of <tt>ft</tt>, <tt>m</tt> or <tt>degrees</tt>.
+         */
+        public String unit() {
+            return unit;
+        }
+    }
+
+    final Cache<CoordinateReferenceSystem,Info> byInstance;
+    final Cache<String,Info> byWKT;
+
+    /** decoded crs, or the exception decoding an unknown code failed with */
+    final Cache<String,Object> decoded;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    final AtomicLong decodeHits = new AtomicLong();
+    final AtomicLong decodeMisses = new AtomicLong();
+
+    public CRSCache(int maxSize) {
+        byInstance = CacheBuilder.newBuilder().weakKeys().maximumSize(maxSize).build();
+        byWKT = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        decoded = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Decodes an srs identifier, as {@link CRS#decode(String)} does.
+     * <p>
+     * Unknown codes are cached as well, so they fail again without going back to the authority factory. Other
+     * failures, such as the EPSG database being unavailable, are not cached and the next call tries again.
+     * </p>
+     * @throws FactoryException If the identifier is <tt>null</tt> or can not be decoded.
+     */
+    public CoordinateReferenceSystem decode(String srs) throws FactoryException {
+        if (srs == null) {
+            throw new FactoryException("No srs specified");
+        }
+
+        Object crs = decoded.getIfPresent(srs);
+        if (crs != null) {
+            decodeHits.incrementAndGet();
+        }
+        else {
+            decodeMisses.incrementAndGet();
+            try {
+                crs = lookup(srs);
+            } catch (NoSuchAuthorityCodeException e) {
+                crs = e;
+            }
+            decoded.put(srs, crs);
+        }
+
+        if (crs instanceof FactoryException) {
+            FactoryException e = (FactoryException) crs;
+            throw new FactoryException(e.getMessage(), e);
+        }
+        return (CoordinateReferenceSystem) crs;
+    }
+
+    CoordinateReferenceSystem lookup(String srs) throws FactoryException {
+        return CRS.decode(srs);
+    }
+
+    /**
+     * Looks up the identifier, type and unit of the specified crs.
+     */
+    public Info info(CoordinateReferenceSystem crs) {
+        Info info = byInstance.getIfPresent(crs);
+        if (info != null) {
+            hits.incrementAndGet();
+            return info;
+        }
+
+        String wkt = null;
+        try {
+            wkt = crs.toWKT();
+        } catch (UnsupportedOperationException e) {
+            // crs that can not be formatted are only cached by instance
+            LOG.log(Level.FINE, "Unable to format crs as WKT: " + crs.getName(), e);
+        }
+
+        info = wkt != null ? byWKT.getIfPresent(wkt) : null;
+        if (info != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+            info = lookup(crs);
+            if (wkt != null) {
+                byWKT.put(wkt, info);
+            }
+        }
+        byInstance.put(crs, info);
+        return info;
+    }
+
+    Info lookup(CoordinateReferenceSystem crs) {
+        String srs = null;
+        try {
+            srs = CRS.lookupIdentifier(crs, false);
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Unable to determine srs from crs: " + crs, e);
+        }
+
+        String type = crs instanceof ProjectedCRS ? "projected" : crs instanceof GeographicCRS ? "geographic" : "other";
+
+        String unit = null;
+        try {
+            // try to determine from actual crs
+            String u = crs.getCoordinateSystem().getAxis(0).getUnit().toString();
+            if ("ft".equals(u) || "feets".equals(u))
+                unit = "ft";
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Unable to determine units from crs", e);
+        }
+        if (unit == null) {
+            // fallback: meters for projected, otherwise degrees
+            unit = crs instanceof ProjectedCRS ? "m" : "degrees";
+        }
+
+        return new Info(srs, type, unit);
+    }
+
+    /**
+     * Number of {@link #info(CoordinateReferenceSystem)} lookups answered from the cache.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of {@link #info(CoordinateReferenceSystem)} lookups that had to inspect the crs.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of distinct crs cached by {@link #info(CoordinateReferenceSystem)}.
+     */
+    public long size() {
+        // equal crs share their info, and crs that can not be formatted as WKT are only cached by instance
+        Set<Info> infos = Sets.newIdentityHashSet();
+        infos.addAll(byWKT.asMap().values());
+        infos.addAll(byInstance.asMap().values());
+        return infos.size();
+    }
+
+    /**
+     * Number of {@link #decode(String)} calls answered from the cache, successfully or not.
+     */
+    public long decodeHits() {
+        return decodeHits.get();
+    }
+
+    /**
+     * Number of {@link #decode(String)} calls that went to the authority factory.
+     */
+    public long decodeMisses() {
+        return decodeMisses.get();
+    }
+
+    /**
+     * Number of srs identifiers cached by {@link #decode(String)}, including the unknown codes.
+     */
+    public long decodeSize() {
+        return decoded.size();
+    }
+
+    /**
+     * Empties the cache and resets the counters.
+     */
+    public void clear() {
+        byInstance.invalidateAll();
+        byWKT.invalidateAll();
+        decoded.invalidateAll();
+        hits.set(0);
+        misses.set(0);
+        decodeHits.set(0);
+        decodeMisses.set(0);
+    }
+}
@@ -0,0 +1,214 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Guards calls to an unreliable resource, such as a remote service or database, with a timeout and fails them
+ * fast once the resource is known to be down.
+ * <p>
+ * Calls run on the specified executor and are given up on, and interrupted, after <tt>timeout</tt>
+ * milliseconds. After <tt>threshold</tt> consecutive failures the breaker opens and calls fail right away with
+ * {@link OpenException}. Once <tt>retry</tt> milliseconds have passed the breaker is half open: a single call
+ * goes through as a probe, closing the breaker if it succeeds and opening it again if it fails, while other
+ * calls keep failing fast.
+ * </p>
+ * <p>
+ * Calls the executor has no room for fail with {@link SaturatedException}. The executor is usually shared by
+ * many resources, so this is not counted as a failure of the resource.
+ * </p>
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Thrown for calls refused while the breaker is open.
+     */
+    public static class OpenException extends IOException {
+
+        final Date retry;
+
+        public OpenException(String message, Date retry) {
+            super(message);
+            this.retry = retry;
+        }
+
+        /**
+         * When the next call is let through.
+         */
+        public Date retry() {
+            return retry;
+        }
+    }
+
+    /**
+     * Thrown for calls the executor has no room for, the resource was not called.
+     */
+    public static class SaturatedException extends IOException {
+
+        public SaturatedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    final String name;
+    final ExecutorService executor;
+    final long timeout;
+    final int threshold;
+    final long retry;
+
+    State state = State.CLOSED;
+    int failures;
+    long opened;
+    boolean probing;
+    String error;
+
+    /**
+     * @param name Name of the resource, for error messages.
+     * @param executor Runs the calls.
+     * @param timeout Time a call may take, in milliseconds.
+     * @param threshold Number of consecutive failures opening the breaker.
+     * @param retry Time the breaker stays open, in milliseconds.
+     */
+    public CircuitBreaker(String name, ExecutorService executor, long timeout, int threshold, long retry) {
+        this.name = name;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.threshold = Math.max(1, threshold);
+        this.retry = retry;
+    }
+
+    /**
+     * Calls the resource through the breaker.
+     *
+     * @throws OpenException If the breaker is open.
+     * @throws SaturatedException If the executor has no room for the call.
+     * @throws IOException If the call failed or timed out, other exceptions are wrapped.
+     */
+    public <T> T call(Callable<T> call) throws IOException {
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() < opened + retry) {
+                    throw open();
+                }
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) {
+                    throw open();
+                }
+                probing = true;
+            }
+        }
+
+        Future<T> future;
+        try {
+            future = executor.submit(call);
+        } catch (RejectedExecutionException e) {
+            // not the resource's fault, a probe is left to the next call
+            synchronized (this) {
+                probing = false;
+            }
+            throw new SaturatedException("Too many calls pending, " + name + " was not accessed", e);
+        }
+
+        try {
+            T result = future.get(timeout, TimeUnit.MILLISECONDS);
+            succeeded();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            String message = String.format("Timed out after %d ms", timeout);
+            failed(message);
+            throw new IOException(message + " accessing " + name);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            failed(cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            Throwables.propagateIfPossible(cause, IOException.class);
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            // not the resource's fault, leave the breaker as is
+            future.cancel(true);
+            synchronized (this) {
+                probing = false;
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted accessing " + name);
+        }
+    }
+
+    OpenException open() {
+        Date at = new Date(opened + retry);
+        return new OpenException(String.format("%s is unavailable after %d failures, retrying after %tT: %s",
+            name, failures, at, error), at);
+    }
+
+    synchronized void succeeded() {
+        state = State.CLOSED;
+        failures = 0;
+        probing = false;
+        error = null;
+    }
+
+    synchronized void failed(String message) {
+        failures++;
+        error = message;
+        if (state == State.HALF_OPEN || failures >= threshold) {
+            state = State.OPEN;
+            opened = System.currentTimeMillis();
+            probing = false;
+        }
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && System.currentTimeMillis() >= opened + retry) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Number of consecutive failures.
+     */
+    public synchronized int failures() {
+        return failures;
+    }
+
+    /**
+     * Message of the last failure, <tt>null</tt> once a call succeeds.
+     */
+    public synchronized String error() {
+        return error;
+    }
+
+    /**
+     * When the breaker last opened, <tt>null</tt> unless open.
+     */
+    public synchronized Date opened() {
+        return state != State.CLOSED ? new Date(opened) : null;
+    }
+
+    /**
+     * When the next call is let through, <tt>null</tt> unless open.
+     */
+    public synchronized Date retry() {
+        return state != State.CLOSED ? new Date(opened + retry) : null;
+    }
+}
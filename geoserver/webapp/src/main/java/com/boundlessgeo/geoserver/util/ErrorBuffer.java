@@ -0,0 +1,225 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Bounded in-memory buffer of recent errors, holding their full stack traces.
+ * <p>
+ * Errors are reported in responses by message and id only, and their details looked up by id. The buffer is a
+ * ring, the oldest errors are evicted first. Errors are sampled by signature, the exception classes and stack
+ * frames of their causal chain: an error with the same signature as one still in the buffer shares its entry,
+ * which only counts the occurrence, so a burst of identical failures neither renders their traces nor flushes
+ * the buffer. Signatures are compared in full, errors whose signatures only share a hash are kept apart.
+ * </p>
+ */
+public class ErrorBuffer {
+
+    /** default number of errors kept */
+    public static final int MAX_SIZE = 256;
+
+    static final ErrorBuffer INSTANCE = new ErrorBuffer(MAX_SIZE);
+
+    /**
+     * The buffer shared by the api.
+     */
+    public static ErrorBuffer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * An error kept in the buffer.
+     */
+    public static class Entry {
+
+        final String id;
+        final Signature signature;
+        final String message;
+        final List<String> causes;
+        final String trace;
+        final Date first;
+
+        volatile Date last;
+        final AtomicInteger count = new AtomicInteger(1);
+
+        Entry(String id, Signature signature, String message, List<String> causes, String trace) {
+            this.id = id;
+            this.signature = signature;
+            this.message = message;
+            this.causes = causes;
+            this.trace = trace;
+            this.first = this.last = new Date();
+        }
+
+        public String id() {
+            return id;
+        }
+
+        /**
+         * Message of the first error recorded with this signature.
+         */
+        public String message() {
+            return message;
+        }
+
+        /**
+         * The errors in the causal chain, outermost first.
+         */
+        public List<String> causes() {
+            return causes;
+        }
+
+        public String trace() {
+            return trace;
+        }
+
+        /**
+         * Number of errors recorded with this signature while in the buffer.
+         */
+        public int count() {
+            return count.get();
+        }
+
+        public Date first() {
+            return first;
+        }
+
+        public Date last() {
+            return last;
+        }
+    }
+
+    final Entry[] ring;
+    int next;
+
+    /** entries in the ring by id and by signature */
+    final Map<String,Entry> byId = new HashMap<String,Entry>();
+    final Map<Signature,Entry> bySignature = new HashMap<Signature,Entry>();
+
+    /** distinguishes the ids of separate runs */
+    final String prefix = Integer.toHexString(new Random().nextInt(0x10000) | 0x10000).substring(1);
+    long sequence;
+
+    public ErrorBuffer(int size) {
+        ring = new Entry[size];
+    }
+
+    /**
+     * Records an error.
+     *
+     * @return The entry for the error, shared with previous errors of the same signature.
+     */
+    public Entry add(Throwable error) {
+        List<Throwable> chain = Throwables.getCausalChain(error);
+        Signature signature = new Signature(chain);
+
+        synchronized (this) {
+            Entry e = bySignature.get(signature);
+            if (e != null) {
+                e.count.incrementAndGet();
+                e.last = new Date();
+                return e;
+            }
+        }
+
+        // render outside the lock
+        String message = null;
+        List<String> causes = new ArrayList<String>(chain.size());
+        for (Throwable t : chain) {
+            if (message == null && t.getMessage() != null) {
+                message = t.getMessage();
+            }
+            causes.add(t.toString());
+        }
+        String trace = Throwables.getStackTraceAsString(error);
+
+        synchronized (this) {
+            Entry e = bySignature.get(signature);
+            if (e != null) {
+                // recorded meanwhile
+                e.count.incrementAndGet();
+                e.last = new Date();
+                return e;
+            }
+
+            e = new Entry(prefix + Long.toHexString(++sequence), signature,
+                message != null ? message : error.toString(), Collections.unmodifiableList(causes), trace);
+
+            Entry evicted = ring[next];
+            if (evicted != null) {
+                byId.remove(evicted.id);
+                bySignature.remove(evicted.signature);
+            }
+            ring[next] = e;
+            next = (next + 1) % ring.length;
+
+            byId.put(e.id, e);
+            bySignature.put(signature, e);
+            return e;
+        }
+    }
+
+    /**
+     * Looks up an error by id.
+     *
+     * @return The error, or <tt>null</tt> if it is unknown or has been evicted.
+     */
+    public synchronized Entry find(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Number of errors in the buffer.
+     */
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * The exception classes and stack frames of a causal chain.
+     */
+    static final class Signature {
+
+        /** per error in the chain its class name followed by its frames */
+        final List<Object> elements;
+        final int hash;
+
+        Signature(List<Throwable> chain) {
+            elements = new ArrayList<Object>();
+            for (Throwable t : chain) {
+                elements.add(t.getClass().getName());
+                elements.addAll(Arrays.asList(t.getStackTrace()));
+            }
+            hash = elements.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Signature)) {
+                return false;
+            }
+            Signature other = (Signature) obj;
+            return hash == other.hash && elements.equals(other.elements);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogBuilder;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.impl.CatalogFactoryImpl;
+import org.geoserver.catalog.impl.FeatureTypeInfoImpl;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class BoundsServiceTest {
+
+    Catalog cat;
+    CatalogBuilder builder;
+    BoundsService bounds;
+    FeatureTypeInfo ft;
+
+    ReferencedEnvelope world = new ReferencedEnvelope(-180, 180, -90, 90, DefaultGeographicCRS.WGS84);
+
+    @Before
+    public void setUp() {
+        new GeoServerExtensions().setApplicationContext(mock(WebApplicationContext.class));
+
+        cat = mock(Catalog.class);
+        GeoServer geoServer = mock(GeoServer.class);
+        when(geoServer.getCatalog()).thenReturn(cat);
+
+        NamespaceInfo ns = mock(NamespaceInfo.class);
+        when(ns.getPrefix()).thenReturn("foo");
+        DataStoreInfo store = mock(DataStoreInfo.class);
+        when(store.getId()).thenReturn("store");
+
+        ft = new CatalogFactoryImpl(cat).createFeatureType();
+        ((FeatureTypeInfoImpl) ft).setId("ft");
+        ft.setName("one");
+        ft.setNamespace(ns);
+        ft.setStore(store);
+        when(cat.getResource("ft", ResourceInfo.class)).thenReturn(ft);
+
+        builder = mock(CatalogBuilder.class);
+        bounds = new BoundsService(geoServer) {
+            @Override
+            CatalogBuilder builder(Catalog cat) {
+                return builder;
+            }
+        };
+    }
+
+    @Test
+    public void testCompute() throws Exception {
+        assertEquals(BoundsService.PENDING, BoundsService.source(ft));
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ft.setNativeBoundingBox(world);
+                ft.setLatLonBoundingBox(world);
+                return null;
+            }
+        }).when(builder).setupBounds(ft);
+
+        bounds.compute("ft");
+        assertEquals(BoundsService.COMPUTED, BoundsService.source(ft));
+        assertEquals(1, bounds.computed());
+        verify(cat).save(ft);
+    }
+
+    @Test
+    public void testCompleteUserBounds() throws Exception {
+        // only the native bounds set through the api
+        ft.setNativeBoundingBox(world);
+        BoundsService.source(ft, BoundsService.USER);
+        assertEquals(BoundsService.PENDING, BoundsService.source(ft));
+
+        when(builder.getLatLonBounds(eq(world), any(CoordinateReferenceSystem.class))).thenReturn(world);
+
+        bounds.compute("ft");
+        assertEquals(BoundsService.USER, BoundsService.source(ft));
+        assertSame(world, ft.getNativeBoundingBox());
+        assertNotNull(ft.getLatLonBoundingBox());
+        verify(builder, never()).setupBounds(any(ResourceInfo.class));
+        verify(builder, never()).getNativeBounds(any(ResourceInfo.class));
+    }
+
+    @Test
+    public void testFailed() throws Exception {
+        doThrow(new IOException("unreachable")).when(builder).setupBounds(ft);
+
+        bounds.compute("ft");
+        assertEquals(BoundsService.FAILED, BoundsService.source(ft));
+        assertEquals(1, bounds.failed());
+        assertEquals(0, bounds.computed());
+        verify(cat).save(ft);
+
+        // setting part of the bounds clears the failure, to be completed
+        ft.setLatLonBoundingBox(world);
+        BoundsService.source(ft, BoundsService.USER);
+        assertEquals(BoundsService.PENDING, BoundsService.source(ft));
+
+        when(builder.getNativeBounds(ft)).thenReturn(world);
+        bounds.compute("ft");
+        assertEquals(BoundsService.USER, BoundsService.source(ft));
+        assertEquals(1, bounds.computed());
+    }
+
+    @Test
+    public void testNoBounds() throws Exception {
+        // nothing computed, reported as failed rather than pending forever
+        bounds.compute("ft");
+        assertEquals(BoundsService.FAILED, BoundsService.source(ft));
+        assertEquals(1, bounds.failed());
+    }
+}
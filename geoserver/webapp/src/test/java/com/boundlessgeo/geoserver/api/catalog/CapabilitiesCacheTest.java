@@ -0,0 +1,90 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CapabilitiesCacheTest {
+
+    InputStream xml(String xml) throws Exception {
+        return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        String caps =
+            "<WMS_Capabilities version=\"1.3.0\" xmlns=\"http://www.opengis.net/wms\">" +
+              "<Service><Name>WMS</Name><Title>Stub</Title></Service>" +
+              "<Capability>" +
+                "<Layer><Title>Root</Title>" +
+                  "<Layer queryable=\"1\"><Name> roads </Name><Title>Roads</Title>" +
+                    "<Style><Name>default</Name></Style>" +
+                  "</Layer>" +
+                  "<Layer><Title>Group</Title>" +
+                    "<Layer><Name>rivers</Name></Layer>" +
+                  "</Layer>" +
+                "</Layer>" +
+              "</Capability>" +
+            "</WMS_Capabilities>";
+
+        // the service and style names are not layers, nor are layers without a name
+        assertEquals(Arrays.asList("roads", "rivers"), CapabilitiesCache.parse(xml(caps)));
+    }
+
+    @Test
+    public void testParse111() throws Exception {
+        String caps =
+            "<WMT_MS_Capabilities version=\"1.1.1\">" +
+              "<Capability><Layer><Name>roads</Name></Layer></Capability>" +
+            "</WMT_MS_Capabilities>";
+        assertEquals(Arrays.asList("roads"), CapabilitiesCache.parse(xml(caps)));
+    }
+
+    @Test
+    public void testParseServiceException() throws Exception {
+        String report =
+            "<ServiceExceptionReport version=\"1.3.0\" xmlns=\"http://www.opengis.net/ogc\">" +
+              "<ServiceException code=\"InvalidParameterValue\">No such service: WFS</ServiceException>" +
+            "</ServiceExceptionReport>";
+        try {
+            CapabilitiesCache.parse(xml(report));
+            fail("service exception report should fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("No such service: WFS"));
+        }
+    }
+
+    @Test
+    public void testParseOther() throws Exception {
+        try {
+            CapabilitiesCache.parse(xml("<html><body><Layer><Name>roads</Name></Layer></body></html>"));
+            fail("other documents should fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("html"));
+        }
+        try {
+            CapabilitiesCache.parse(xml("not xml"));
+            fail("other documents should fail");
+        } catch (IOException e) {
+        }
+    }
+
+    @Test
+    public void testRequest() throws Exception {
+        assertEquals("http://host/wms?SERVICE=WMS&REQUEST=GetCapabilities&VERSION=1.3.0",
+            CapabilitiesCache.request("http://host/wms").toString());
+        assertEquals("http://host/wms?map=a.map&SERVICE=WMS&REQUEST=GetCapabilities&VERSION=1.3.0",
+            CapabilitiesCache.request("http://host/wms?service=wms&map=a.map&version=1.1.1&request=GetMap&")
+                .toString());
+    }
+}
@@ -0,0 +1,104 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import com.boundlessgeo.geoserver.api.controllers.MockGeoServer;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.LayerGroupInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.Predicates;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class CatalogCountsTest {
+
+    GeoServer geoServer;
+    Catalog cat;
+    CatalogCounts counts;
+
+    @Before
+    public void setUp() {
+        // no raw catalog, counts come from the mock catalog
+        new GeoServerExtensions().setApplicationContext(mock(WebApplicationContext.class));
+
+        geoServer = MockGeoServer.get().catalog()
+            .workspace("foo", "http://foo.org", true)
+                .layer("one")
+                  .featureType().defaults().workspace()
+            .catalog()
+            .workspace("bar", "http://bar.org", false)
+                .layer("two")
+                  .featureType().defaults().workspace()
+            .geoServer().build(mock(GeoServer.class));
+        cat = geoServer.getCatalog();
+        counts = new CatalogCounts(geoServer);
+    }
+
+    @Test
+    public void testAddRemove() throws Exception {
+        when(cat.count(LayerInfo.class, Predicates.acceptAll())).thenReturn(2);
+        assertEquals(2, counts.layers().value());
+        assertTrue(counts.layers().exact());
+
+        LayerInfo layer = cat.getLayerByName("foo:one");
+        CatalogAddEvent add = mock(CatalogAddEvent.class);
+        when(add.getSource()).thenReturn(layer);
+        counts.handleAddEvent(add);
+        assertEquals(3, counts.layers().value());
+
+        CatalogRemoveEvent remove = mock(CatalogRemoveEvent.class);
+        when(remove.getSource()).thenReturn(layer);
+        counts.handleRemoveEvent(remove);
+        counts.handleRemoveEvent(remove);
+        assertEquals(1, counts.layers().value());
+
+        // maintained from the events, counted once
+        verify(cat, times(1)).count(LayerInfo.class, Predicates.acceptAll());
+    }
+
+    @Test
+    public void testCountDuringChangeNotKept() throws Exception {
+        final CatalogAddEvent add = mock(CatalogAddEvent.class);
+        when(add.getSource()).thenReturn(cat.getLayerByName("bar:two"));
+
+        when(cat.count(LayerInfo.class, Predicates.acceptAll())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                // an object is added while counting
+                counts.handleAddEvent(add);
+                return 2;
+            }
+        });
+
+        assertFalse(counts.layers().exact());
+        counts.layers();
+        verify(cat, times(2)).count(LayerInfo.class, Predicates.acceptAll());
+    }
+
+    @Test
+    public void testReconcile() throws Exception {
+        when(cat.count(LayerGroupInfo.class, Predicates.acceptAll())).thenReturn(1);
+        assertEquals(1, counts.maps().value());
+
+        // drifted
+        when(cat.count(LayerGroupInfo.class, Predicates.acceptAll())).thenReturn(4);
+        assertEquals(1, counts.maps().value());
+
+        counts.reconcile();
+        assertEquals(4, counts.maps().value());
+        assertTrue(counts.maps().exact());
+    }
+}
@@ -0,0 +1,199 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import com.boundlessgeo.geoserver.api.controllers.MockGeoServer;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.Predicates;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.util.CloseableIteratorAdapter;
+import org.geoserver.config.GeoServer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CatalogWarmUpTest {
+
+    GeoServer geoServer;
+    Catalog cat;
+    StoreAccess access;
+    CatalogWarmUp warmUp;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        // default workspace last, the others out of name order
+        geoServer = MockGeoServer.get().catalog()
+            .workspace("zoo", "http://zoo.org", false)
+                .layer("z1").featureType().defaults().workspace()
+            .catalog()
+            .workspace("bar", "http://bar.org", false)
+                .layer("b1").featureType().defaults().workspace()
+                .layer("b2").featureType().defaults().workspace()
+                .layer("off").featureType().defaults().workspace()
+            .catalog()
+            .workspace("foo", "http://foo.org", true)
+                .layer("f1").featureType().defaults().workspace()
+            .catalog()
+            .geoServer().build(mock(GeoServer.class));
+        cat = geoServer.getCatalog();
+
+        for (LayerInfo l : cat.getLayers()) {
+            boolean enabled = !"off".equals(l.getName());
+            when(l.isEnabled()).thenReturn(enabled);
+            when(l.getResource().isEnabled()).thenReturn(true);
+            when(l.getResource().getStore()).thenReturn(mock(StoreInfo.class));
+        }
+        // listed more than once
+        when(cat.list(LayerInfo.class, Predicates.acceptAll())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return new CloseableIteratorAdapter<LayerInfo>(cat.getLayers().iterator());
+            }
+        });
+
+        access = mock(StoreAccess.class);
+        when(access.call(any(StoreInfo.class), any(Callable.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((Callable<?>) invocation.getArguments()[1]).call();
+            }
+        });
+        warmUp = new CatalogWarmUp(geoServer, access);
+    }
+
+    FeatureTypeInfo resource(String layer) {
+        return (FeatureTypeInfo) cat.getLayerByName(layer).getResource();
+    }
+
+    List<String> names(List<ResourceInfo> resources) {
+        List<String> names = new ArrayList<String>();
+        for (ResourceInfo r : resources) {
+            names.add(r.getName());
+        }
+        return names;
+    }
+
+    void waitDone() throws InterruptedException {
+        for (int i = 0; i < 500 && warmUp.state() != CatalogWarmUp.State.DONE; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(CatalogWarmUp.State.DONE, warmUp.state());
+    }
+
+    @Test
+    public void testResources() throws Exception {
+        List<String> names = names(warmUp.resources());
+        assertEquals(4, names.size());
+        // default workspace first, then by workspace name
+        assertEquals("f1", names.get(0));
+        assertEquals("b1", names.get(1));
+        assertEquals("b2", names.get(2));
+        assertEquals("z1", names.get(3));
+    }
+
+    @Test
+    public void testStart() throws Exception {
+        assertEquals(CatalogWarmUp.State.PENDING, warmUp.state());
+        assertEquals(0, warmUp.elapsed());
+
+        warmUp.start(1);
+        waitDone();
+        assertEquals(4, warmUp.total());
+        assertEquals(4, warmUp.completed());
+        assertEquals(0, warmUp.failed());
+        assertTrue(warmUp.elapsed() >= 0);
+
+        // one thread, in order
+        InOrder order = inOrder(resource("f1"), resource("b1"), resource("b2"), resource("z1"));
+        order.verify(resource("f1")).getFeatureType();
+        order.verify(resource("b1")).getFeatureType();
+        order.verify(resource("b2")).getFeatureType();
+        order.verify(resource("z1")).getFeatureType();
+        verify(resource("off"), never()).getFeatureType();
+
+        // started once
+        warmUp.start(1);
+        warmUp.onApplicationEvent(mock(ContextRefreshedEvent.class));
+        assertEquals(CatalogWarmUp.State.DONE, warmUp.state());
+        assertEquals(4, warmUp.completed());
+
+        warmUp.destroy();
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        when(resource("b1").getFeatureType()).thenThrow(new IOException("no such table"));
+        // timed out, or refused by the breaker of the store
+        final StoreInfo hung = resource("z1").getStore();
+        when(access.call(any(StoreInfo.class), any(Callable.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                if (invocation.getArguments()[0] == hung) {
+                    throw new IOException("timed out");
+                }
+                return ((Callable<?>) invocation.getArguments()[1]).call();
+            }
+        });
+
+        warmUp.start(2);
+        waitDone();
+        assertEquals(4, warmUp.completed());
+        assertEquals(2, warmUp.failed());
+        verify(resource("f1")).getFeatureType();
+        verify(resource("b2")).getFeatureType();
+        warmUp.destroy();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        when(cat.list(LayerInfo.class, Predicates.acceptAll())).thenReturn(
+            new CloseableIteratorAdapter<LayerInfo>(new ArrayList<LayerInfo>().iterator()));
+
+        warmUp.start(1);
+        assertEquals(CatalogWarmUp.State.DONE, warmUp.state());
+        assertEquals(0, warmUp.total());
+        warmUp.destroy();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        System.setProperty(CatalogWarmUp.ENABLED, "false");
+        try {
+            warmUp.onApplicationEvent(mock(ContextRefreshedEvent.class));
+        }
+        finally {
+            System.clearProperty(CatalogWarmUp.ENABLED);
+        }
+        assertEquals(CatalogWarmUp.State.DISABLED, warmUp.state());
+        assertNull(warmUp.executor);
+
+        // not started by later refreshes
+        warmUp.onApplicationEvent(mock(ContextRefreshedEvent.class));
+        assertEquals(CatalogWarmUp.State.DISABLED, warmUp.state());
+        assertEquals(0, warmUp.total());
+        verify(resource("f1"), never()).getFeatureType();
+    }
+}
@@ -0,0 +1,144 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import com.boundlessgeo.geoserver.api.controllers.MockGeoServer;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogFactory;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.impl.DataStoreInfoImpl;
+import org.geoserver.catalog.util.CloseableIteratorAdapter;
+import org.geoserver.config.GeoServer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opengis.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PublishedIndexTest {
+
+    static final int N = 10;
+
+    Catalog cat;
+    DataStoreInfo store;
+    DataStoreInfo other;
+    PublishedIndex index;
+
+    /** every resource of the catalog, listed through the query filter */
+    List<ResourceInfo> resources = new ArrayList<ResourceInfo>();
+
+    @Before
+    public void setUp() {
+        GeoServer geoServer = MockGeoServer.get().catalog()
+            .workspace("foo", "http://foo.org", true)
+            .geoServer().build(mock(GeoServer.class));
+        cat = geoServer.getCatalog();
+
+        CatalogFactory factory = cat.getFactory();
+        NamespaceInfo ns = factory.createNamespace();
+        ns.setPrefix("foo");
+        ns.setURI("http://foo.org");
+
+        store = store(factory, "one");
+        other = store(factory, "two");
+        for (int i = 0; i < N; i++) {
+            resource(factory, store, ns, "r" + i);
+        }
+        // same native name, other store
+        resource(factory, other, ns, "r0");
+
+        when(cat.list(eq(ResourceInfo.class), any(Filter.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Filter filter = (Filter) invocation.getArguments()[1];
+                List<ResourceInfo> matches = new ArrayList<ResourceInfo>();
+                for (ResourceInfo r : resources) {
+                    if (filter.evaluate(r)) {
+                        matches.add(r);
+                    }
+                }
+                return new CloseableIteratorAdapter<ResourceInfo>(matches.iterator());
+            }
+        });
+
+        index = new PublishedIndex(geoServer, 10);
+    }
+
+    DataStoreInfo store(CatalogFactory factory, String name) {
+        DataStoreInfo s = factory.createDataStore();
+        ((DataStoreInfoImpl) s).setId(name);
+        s.setName(name);
+        s.setWorkspace(cat.getWorkspaceByName("foo"));
+        return s;
+    }
+
+    FeatureTypeInfo resource(CatalogFactory factory, DataStoreInfo store, NamespaceInfo ns, String nativeName) {
+        FeatureTypeInfo r = factory.createFeatureType();
+        r.setName(nativeName);
+        r.setNativeName(nativeName);
+        r.setStore(store);
+        r.setNamespace(ns);
+        resources.add(r);
+        return r;
+    }
+
+    @Test
+    public void testSingleQuery() throws Exception {
+        for (int i = 0; i < N; i++) {
+            List<ResourceInfo> found = index.resources(store, "r" + i);
+            assertEquals(1, found.size());
+            assertEquals("r" + i, found.get(0).getNativeName());
+        }
+        assertTrue(index.resources(store, "missing").isEmpty());
+        assertEquals(N, index.resources(store).size());
+
+        verify(cat, times(1)).list(eq(ResourceInfo.class), any(Filter.class));
+        assertEquals(1, index.misses());
+        assertEquals(N + 1, index.hits());
+    }
+
+    @Test
+    public void testOtherStoreExcluded() throws Exception {
+        List<ResourceInfo> found = index.resources(store, "r0");
+        assertEquals(1, found.size());
+        assertEquals(store, found.get(0).getStore());
+
+        found = index.resources(other, "r0");
+        assertEquals(1, found.size());
+        assertEquals(other, found.get(0).getStore());
+        assertEquals(1, index.resources(other).size());
+
+        // one query for each store
+        verify(cat, times(2)).list(eq(ResourceInfo.class), any(Filter.class));
+    }
+
+    @Test
+    public void testEvictOnResourceAdded() throws Exception {
+        assertTrue(index.resources(store, "added").isEmpty());
+
+        ResourceInfo added = resource(cat.getFactory(), store, resources.get(0).getNamespace(), "added");
+        CatalogAddEvent add = mock(CatalogAddEvent.class);
+        when(add.getSource()).thenReturn(added);
+        index.handleAddEvent(add);
+
+        assertEquals(1, index.resources(store, "added").size());
+        verify(cat, times(2)).list(eq(ResourceInfo.class), any(Filter.class));
+    }
+}
@@ -0,0 +1,112 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import com.boundlessgeo.geoserver.json.Fields;
+import com.boundlessgeo.geoserver.json.JSONObj;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.config.GeoServer;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StoreDetailsCacheTest {
+
+    StoreDetailsCache cache;
+    StoreInfo store;
+    StoreInfo other;
+
+    @Before
+    public void setUp() {
+        cache = new StoreDetailsCache(mock(GeoServer.class), 10, 60);
+        store = mock(StoreInfo.class);
+        when(store.getId()).thenReturn("store");
+        other = mock(StoreInfo.class);
+        when(other.getId()).thenReturn("other");
+    }
+
+    JSONObj details(String name) {
+        return new JSONObj().put("name", name).put("enabled", true);
+    }
+
+    @Test
+    public void testPutGet() throws Exception {
+        assertNull(cache.get(store, Fields.ALL));
+        assertTrue(cache.put(store, cache.version(store), details("one")));
+
+        JSONObj cached = cache.get(store, Fields.ALL);
+        assertEquals("one", cached.str("name"));
+        assertEquals(1, cache.hits());
+
+        // copied out, changes do not reach the cache
+        cached.put("name", "changed");
+        assertEquals("one", cache.get(store, Fields.ALL).str("name"));
+
+        // cached by projection
+        assertNull(cache.get(store, Fields.parse("name")));
+        assertNull(cache.get(other, Fields.ALL));
+    }
+
+    @Test
+    public void testEvictOnResourceAdded() throws Exception {
+        cache.put(store, cache.version(store), details("one"));
+        cache.put(other, cache.version(other), details("two"));
+
+        ResourceInfo r = mock(ResourceInfo.class);
+        when(r.getStore()).thenReturn(store);
+        CatalogAddEvent add = mock(CatalogAddEvent.class);
+        when(add.getSource()).thenReturn(r);
+        cache.handleAddEvent(add);
+
+        assertNull(cache.get(store, Fields.ALL));
+        assertNotNull(cache.get(other, Fields.ALL));
+    }
+
+    @Test
+    public void testStalePutRefused() throws Exception {
+        // details encoded while the store is modified
+        long version = cache.version(store);
+        long otherVersion = cache.version(other);
+
+        CatalogModifyEvent modify = mock(CatalogModifyEvent.class);
+        when(modify.getSource()).thenReturn(store);
+        cache.handleModifyEvent(modify);
+        CatalogPostModifyEvent postModify = mock(CatalogPostModifyEvent.class);
+        when(postModify.getSource()).thenReturn(store);
+        cache.handlePostModifyEvent(postModify);
+
+        assertFalse(cache.put(store, version, details("old")));
+        assertNull(cache.get(store, Fields.ALL));
+
+        // other stores are not affected
+        assertTrue(cache.put(other, otherVersion, details("two")));
+
+        assertTrue(cache.put(store, cache.version(store), details("new")));
+        assertEquals("new", cache.get(store, Fields.ALL).str("name"));
+    }
+
+    @Test
+    public void testStalePutRefusedAfterReload() throws Exception {
+        long version = cache.version(store);
+        cache.evict(store);
+        long evicted = cache.version(store);
+        cache.reloaded();
+
+        assertFalse(cache.put(store, version, details("old")));
+        assertFalse(cache.put(store, evicted, details("old")));
+        assertTrue(cache.put(store, cache.version(store), details("new")));
+        assertEquals(1, cache.size());
+    }
+}
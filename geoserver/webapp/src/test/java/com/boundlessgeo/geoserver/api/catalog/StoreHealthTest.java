@@ -0,0 +1,169 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.catalog;
+
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CoverageStoreInfo;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerResourceLoader;
+import org.geotools.coverage.grid.io.GridCoverage2DReader;
+import org.geotools.data.DataStore;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.Hints;
+import org.geotools.feature.NameImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opengis.feature.type.Name;
+import org.opengis.util.ProgressListener;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StoreHealthTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    StoreHealth health;
+    DataStoreInfo store;
+    DataStore data;
+    SimpleFeatureIterator it;
+
+    @Before
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void setUp() throws Exception {
+        GeoServerResourceLoader loader = mock(GeoServerResourceLoader.class);
+        when(loader.getBaseDirectory()).thenReturn(tmp.getRoot());
+        Catalog cat = mock(Catalog.class);
+        when(cat.getResourceLoader()).thenReturn(loader);
+        GeoServer gs = mock(GeoServer.class);
+        when(gs.getCatalog()).thenReturn(cat);
+
+        StoreAccess access = mock(StoreAccess.class);
+        when(access.call(any(StoreInfo.class), any(Callable.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((Callable<?>) invocation.getArguments()[1]).call();
+            }
+        });
+        health = new StoreHealth(gs, access, mock(CapabilitiesCache.class));
+
+        Name roads = new NameImpl("roads");
+        it = mock(SimpleFeatureIterator.class);
+        SimpleFeatureCollection features = mock(SimpleFeatureCollection.class);
+        when(features.features()).thenReturn(it);
+        SimpleFeatureSource source = mock(SimpleFeatureSource.class);
+        when(source.getFeatures(any(Query.class))).thenReturn(features);
+
+        data = mock(DataStore.class);
+        when(data.getNames()).thenReturn(Arrays.<Name>asList(roads));
+        when(data.getFeatureSource(roads)).thenReturn(source);
+
+        store = mock(DataStoreInfo.class);
+        when(store.getId()).thenReturn("store");
+        when(store.getName()).thenReturn("store");
+        doReturn(data).when(store).getDataStore(any(ProgressListener.class));
+    }
+
+    @Test
+    public void testProbeReadsFeature() throws Exception {
+        StoreHealth.Health h = health.probe(store);
+
+        assertNotNull(h.lastProbe());
+        assertEquals(h.lastProbe(), h.lastSuccess());
+        assertNull(h.lastFailure());
+        assertTrue(h.latency() >= 0);
+        assertEquals(0, h.failures());
+        assertNull(h.error());
+
+        // the cached store is not enough, the source is read
+        verify(it).hasNext();
+        verify(it).close();
+        assertTrue(h == health.health(store));
+    }
+
+    @Test
+    public void testProbeFailures() throws Exception {
+        when(it.hasNext()).thenThrow(new RuntimeException("connection refused"));
+
+        health.probe(store);
+        StoreHealth.Health h = health.probe(store);
+        assertEquals(2, h.failures());
+        assertEquals("connection refused", h.error());
+        assertNotNull(h.lastFailure());
+        assertEquals(h.lastFailure(), h.lastProbe());
+        assertNull(h.lastSuccess());
+        assertEquals(-1, h.latency());
+        verify(it, times(2)).close();
+
+        // recovered
+        doReturn(false).when(it).hasNext();
+        h = health.probe(store);
+        assertEquals(0, h.failures());
+        assertNull(h.error());
+        assertNotNull(h.lastSuccess());
+        assertNotNull(h.lastFailure());
+    }
+
+    @Test
+    public void testMissingCoverageFile() throws Exception {
+        CoverageStoreInfo coverage = mock(CoverageStoreInfo.class);
+        when(coverage.getId()).thenReturn("coverage");
+        when(coverage.getName()).thenReturn("coverage");
+        when(coverage.getURL()).thenReturn("file:data/missing.tif");
+
+        StoreHealth.Health h = health.probe(coverage);
+        assertEquals(1, h.failures());
+        assertTrue(h.error().contains("missing.tif"));
+        verify(coverage, never()).getGridCoverageReader(any(ProgressListener.class), any(Hints.class));
+
+        // the file shows up again
+        File file = new File(tmp.newFolder("data"), "missing.tif");
+        assertTrue(file.createNewFile());
+        GridCoverage2DReader reader = mock(GridCoverage2DReader.class);
+        when(reader.getGridCoverageNames()).thenReturn(new String[]{"missing"});
+        doReturn(reader).when(coverage).getGridCoverageReader(any(ProgressListener.class), any(Hints.class));
+
+        h = health.probe(coverage);
+        assertEquals(0, h.failures());
+        verify(reader).getGridCoverageNames();
+    }
+
+    @Test
+    public void testResetOnModify() throws Exception {
+        when(it.hasNext()).thenThrow(new RuntimeException("connection refused"));
+        assertEquals(1, health.probe(store).failures());
+
+        CatalogPostModifyEvent e = mock(CatalogPostModifyEvent.class);
+        when(e.getSource()).thenReturn(store);
+        health.handlePostModifyEvent(e);
+
+        assertNull(health.health(store));
+        // failures counted from scratch
+        assertEquals(1, health.probe(store).failures());
+    }
+}
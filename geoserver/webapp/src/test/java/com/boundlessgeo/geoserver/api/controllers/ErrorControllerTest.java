@@ -0,0 +1,57 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.controllers;
+
+import com.boundlessgeo.geoserver.api.converters.JSONMessageConverter;
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.json.JSONWrapper;
+import com.boundlessgeo.geoserver.util.ErrorBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ErrorControllerTest {
+
+    MockMvc mvc;
+
+    @Before
+    public void setUpMVC() {
+        mvc = MockMvcBuilders.standaloneSetup(new ErrorController())
+            .setMessageConverters(new JSONMessageConverter())
+            .build();
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        JSONObj error = IO.error(new JSONObj(), new IOException("unreachable"), true);
+
+        MvcResult result = mvc.perform(get("/api/errors/" + error.str("id")))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andReturn();
+
+        JSONObj obj = JSONWrapper.read(result.getResponse().getContentAsString()).toObject();
+        assertEquals(error.str("id"), obj.str("id"));
+        assertEquals("unreachable", obj.str("message"));
+        assertEquals(1, obj.array("cause").size());
+        assertTrue(obj.str("trace").contains("IOException"));
+    }
+
+    @Test
+    public void testGetUnknown() throws Exception {
+        mvc.perform(get("/api/errors/nosuchid"))
+            .andExpect(status().isNotFound());
+    }
+}
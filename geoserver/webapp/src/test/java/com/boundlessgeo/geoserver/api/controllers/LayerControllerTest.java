@@ -3,6 +3,8 @@
  */
 package com.boundlessgeo.geoserver.api.controllers;
 
+import com.boundlessgeo.geoserver.api.catalog.CatalogVersions;
+import com.boundlessgeo.geoserver.api.catalog.SchemaCache;
 import com.boundlessgeo.geoserver.api.converters.JSONMessageConverter;
 import com.boundlessgeo.geoserver.api.converters.ResourceMessageConverter;
 import com.boundlessgeo.geoserver.api.converters.YsldMessageConverter;
@@ -13,6 +15,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 
 import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.FeatureTypeInfo;
 import org.geoserver.catalog.LayerInfo;
 import org.geoserver.catalog.SLDHandler;
 import org.geoserver.catalog.StyleHandler;
@@ -30,6 +33,10 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opengis.feature.type.FeatureType;
+import org.opengis.filter.Filter;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
@@ -44,6 +51,8 @@ import java.io.ByteArrayOutputStream;
 
 import static junit.framework.TestCase.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -54,6 +63,9 @@ public class LayerControllerTest {
     @Mock
     GeoServer geoServer;
 
+    @Mock
+    CatalogVersions versions;
+
     @InjectMocks
     LayerController ctrl;
 
@@ -158,6 +170,211 @@ public class LayerControllerTest {
         assertNotNull(obj.get("created"));
     }
 
+    @Test
+    public void testListNDJSON() throws Exception {
+        MockGeoServer.get().catalog()
+            .workspace("foo", "http://scratch.org", true)
+                .layer("one")
+                  .featureType().defaults().workspace()
+                .layer("two")
+                  .featureType().defaults().workspace()
+            .geoServer().build(geoServer);
+
+        MvcResult result = mvc.perform(get("/api/layers/foo?fields=name").accept(MediaType.valueOf("application/x-ndjson")))
+            .andExpect(status().isOk())
+            .andReturn();
+        assertTrue(result.getResponse().getContentType().startsWith("application/x-ndjson"));
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("one", JSONWrapper.read(lines[0]).toObject().str("name"));
+        assertEquals("two", JSONWrapper.read(lines[1]).toObject().str("name"));
+        assertEquals(1, JSONWrapper.read(lines[0]).toObject().size());
+    }
+
+    @Test
+    public void testListNotModified() throws Exception {
+        MockGeoServer.get().catalog()
+            .workspace("foo", "http://scratch.org", true)
+                .layer("one")
+                  .featureType().defaults().workspace()
+            .geoServer().build(geoServer);
+
+        when(versions.version("foo")).thenReturn(1l);
+
+        MvcResult result = mvc.perform(get("/api/layers/foo"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        String etag = result.getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        result = mvc.perform(get("/api/layers/foo").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+        assertEquals(0, result.getResponse().getContentLength());
+        assertEquals(etag, result.getResponse().getHeader("ETag"));
+
+        Catalog cat = geoServer.getCatalog();
+        verify(cat, times(1)).count(eq(LayerInfo.class), any(Filter.class));
+
+        when(versions.version("foo")).thenReturn(2l);
+        mvc.perform(get("/api/layers/foo").header("If-None-Match", etag))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testListTimedOutNotTagged() throws Exception {
+        MockGeoServer.get().catalog()
+            .workspace("foo", "http://scratch.org", true)
+                .layer("one")
+                  .featureType().defaults().workspace()
+                .layer("two")
+                  .featureType().defaults().workspace()
+            .geoServer().build(geoServer);
+
+        when(versions.version("foo")).thenReturn(1l);
+
+        // the schema of a layer hangs until the encoder gives up on it
+        FeatureTypeInfo ft = (FeatureTypeInfo) geoServer.getCatalog().getLayerByName("foo:two").getResource();
+        when(ft.getFeatureType()).thenAnswer(new Answer<FeatureType>() {
+            @Override
+            public FeatureType answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(60000);
+                return null;
+            }
+        });
+
+        MvcResult result = mvc.perform(get("/api/layers/foo"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        JSONObj obj = JSONWrapper.read(result.getResponse().getContentAsString()).toObject();
+        JSONArr layers = obj.array("layers");
+        assertFalse(layers.object(0).has("error"));
+        assertTrue(layers.object(1).object("error").bool("timeout"));
+
+        assertNull(result.getResponse().getHeader("ETag"));
+        assertEquals("no-store", result.getResponse().getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void testGetMissingWithWildcardMatch() throws Exception {
+        MockGeoServer.get().catalog()
+            .workspace("foo", "http://scratch.org", true)
+                .layer("one")
+                  .featureType().defaults().workspace()
+            .geoServer().build(geoServer);
+
+        when(versions.version("foo")).thenReturn(1l);
+
+        mvc.perform(get("/api/layers/foo/missing").header("If-None-Match", "*"))
+            .andExpect(status().isNotFound());
+        mvc.perform(get("/api/layers/foo/one").header("If-None-Match", "*"))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testListCursor() throws Exception {
+        MockGeoServer.get().catalog()
+            .workspace("foo", "http://scratch.org", true)
+                .layer("three")
+                  .featureType().defaults().workspace()
+                .layer("one")
+                  .featureType().defaults().workspace()
+                .layer("two")
+                  .featureType().defaults().workspace()
+            .geoServer().build(geoServer);
+
+        MvcResult result = mvc.perform(get("/api/layers/foo?cursor=&pagesize=2&fields=name"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        JSONObj obj = JSONWrapper.read(result.getResponse().getContentAsString()).toObject();
+        assertEquals(2, obj.integer("count").intValue());
+        assertEquals("one", obj.array("layers").object(0).str("name"));
+        assertEquals("three", obj.array("layers").object(1).str("name"));
+        assertFalse(obj.has("total"));
+
+        String next = obj.str("next");
+        assertNotNull(next);
+
+        result = mvc.perform(get("/api/layers/foo?pagesize=2&fields=name").param("cursor", next))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        obj = JSONWrapper.read(result.getResponse().getContentAsString()).toObject();
+        assertEquals(1, obj.integer("count").intValue());
+        assertEquals("two", obj.array("layers").object(0).str("name"));
+        assertFalse(obj.has("next"));
+
+        mvc.perform(get("/api/layers/foo?cursor=bogus!"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetFields() throws Exception {
+        MockGeoServer.get().catalog()
+            .workspace("foo", "http://scratch.org", true)
+                .layer("one").info("The layer", "This layer is cool!")
+                .featureType().defaults()
+            .geoServer().build(geoServer);
+
+        MvcResult result = mvc.perform(get("/api/layers/foo/one?fields=name,title,proj.srs"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andReturn();
+
+        JSONObj obj = JSONWrapper.read(result.getResponse().getContentAsString()).toObject();
+
+        assertEquals("one", obj.str("name"));
+        assertEquals("The layer", obj.str("title"));
+        assertEquals("EPSG:4326", obj.object("proj").str("srs"));
+        assertFalse(obj.object("proj").has("unit"));
+        assertFalse(obj.has("description"));
+        assertFalse(obj.has("bbox"));
+        assertFalse(obj.has("schema"));
+
+        FeatureTypeInfo ft = (FeatureTypeInfo) geoServer.getCatalog().getLayerByName("foo:one").getResource();
+        verify(ft, never()).getFeatureType();
+    }
+
+    @Test
+    public void testGetSchemaCached() throws Exception {
+        MockGeoServer.get().catalog()
+            .workspace("foo", "http://scratch.org", true)
+                .layer("one")
+                .featureType().defaults()
+            .geoServer().build(geoServer);
+
+        FeatureTypeInfo ft = (FeatureTypeInfo) geoServer.getCatalog().getLayerByName("foo:one").getResource();
+        when(ft.getId()).thenReturn("ft1");
+
+        SchemaCache schemas = new SchemaCache(geoServer);
+        mvc = MockMvcBuilders.standaloneSetup(new LayerController(geoServer, null, versions, schemas))
+            .setMessageConverters(new JSONMessageConverter()).build();
+
+        mvc.perform(get("/api/layers/foo/one")).andExpect(status().isOk());
+
+        MvcResult result = mvc.perform(get("/api/layers/foo/one?fields=schema.attributes.name"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        JSONObj obj = JSONWrapper.read(result.getResponse().getContentAsString()).toObject();
+        JSONArr attributes = obj.object("schema").array("attributes");
+        assertEquals(2, attributes.size());
+        assertEquals("geom", attributes.object(0).str("name"));
+        assertEquals(1, attributes.object(0).size());
+        assertEquals("name", attributes.object(1).str("name"));
+
+        assertEquals(1, schemas.hits());
+        assertEquals(1, schemas.misses());
+
+        schemas.evict(ft);
+        mvc.perform(get("/api/layers/foo/one")).andExpect(status().isOk());
+        assertEquals(2, schemas.misses());
+    }
+
     @Test
     public void testGetStyle() throws Exception {
         MockGeoServer.get().catalog()
@@ -3,6 +3,7 @@
  */
 package com.boundlessgeo.geoserver.api.controllers;
 
+import com.boundlessgeo.geoserver.api.catalog.CatalogVersions;
 import com.boundlessgeo.geoserver.api.converters.JSONMessageConverter;
 import com.boundlessgeo.geoserver.json.JSONArr;
 import com.boundlessgeo.geoserver.json.JSONObj;
@@ -41,6 +42,9 @@ public class MapControllerTest {
     @Mock
     GeoServer geoServer;
 
+    @Mock
+    CatalogVersions versions;
+
     @InjectMocks
     MapController ctrl;
 
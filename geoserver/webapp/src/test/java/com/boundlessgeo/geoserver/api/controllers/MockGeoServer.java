@@ -39,8 +39,14 @@ import org.geotools.styling.Rule;
 import org.geotools.styling.SLDTransformer;
 import org.geotools.styling.Style;
 import org.geotools.styling.StyleFactory;
+import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.sort.SortBy;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import javax.annotation.Nullable;
@@ -52,6 +58,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
@@ -83,7 +91,7 @@ public class MockGeoServer {
         return geoServer;
     }
 
-    CatalogBuilder catalog() {
+    public CatalogBuilder catalog() {
         return catalog;
     }
 
@@ -271,6 +279,45 @@ public class MockGeoServer {
                 when(catalog.count(LayerInfo.class, Predicates.equal("resource.namespace.prefix",
                     wsBuilder.workspace.getName()))).thenReturn(wsBuilder.layers.size());
 
+                // keyset pagination, sorted on name after the name in the filter if any
+                final Filter wsFilter = Predicates.equal("resource.namespace.prefix", wsBuilder.workspace.getName());
+                when(catalog.list(eq(LayerInfo.class), argThat(new ArgumentMatcher<Filter>() {
+                    @Override
+                    public boolean matches(Object o) {
+                        return wsFilter.equals(o) || (o instanceof And && ((And) o).getChildren().contains(wsFilter));
+                    }
+                }), (Integer) isNull(), anyInt(), (SortBy) notNull())).thenAnswer(new Answer<CloseableIteratorAdapter<LayerInfo>>() {
+                    @Override
+                    public CloseableIteratorAdapter<LayerInfo> answer(InvocationOnMock invocation) throws Throwable {
+                        Filter filter = (Filter) invocation.getArguments()[1];
+                        Integer count = (Integer) invocation.getArguments()[3];
+
+                        String after = null;
+                        if (filter instanceof And) {
+                            for (Filter f : ((And) filter).getChildren()) {
+                                if (f instanceof PropertyIsGreaterThan) {
+                                    after = ((Literal) ((PropertyIsGreaterThan) f).getExpression2()).getValue().toString();
+                                }
+                            }
+                        }
+
+                        List<LayerInfo> sorted = new ArrayList<LayerInfo>();
+                        for (LayerInfo l : layers) {
+                            if (after == null || l.getName().compareTo(after) > 0) {
+                                sorted.add(l);
+                            }
+                        }
+                        Collections.sort(sorted, new Comparator<LayerInfo>() {
+                            @Override
+                            public int compare(LayerInfo l1, LayerInfo l2) {
+                                return l1.getName().compareTo(l2.getName());
+                            }
+                        });
+                        return new CloseableIteratorAdapter<LayerInfo>(
+                            sorted.subList(0, Math.min(count, sorted.size())).iterator());
+                    }
+                });
+
                 final List<LayerGroupInfo> maps = Lists.transform(wsBuilder.maps, new Function<MapBuilder, LayerGroupInfo>() {
                     @Nullable
                     @Override
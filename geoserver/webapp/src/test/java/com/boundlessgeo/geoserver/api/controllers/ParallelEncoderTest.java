@@ -0,0 +1,103 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.controllers;
+
+import com.boundlessgeo.geoserver.api.controllers.ApiController.Encoder;
+import com.boundlessgeo.geoserver.json.Fields;
+import com.boundlessgeo.geoserver.json.JSONArr;
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.google.common.base.Function;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelEncoderTest {
+
+    static final Encoder<String> NAME = new Encoder<String>() {
+        @Override
+        public void encode(JSONObj obj, String item) {
+            obj.put("name", item);
+        }
+    };
+
+    @After
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testTimeoutInterruptsItem() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Encoder<String> encoder = new Encoder<String>() {
+            @Override
+            public void encode(JSONObj obj, String item) {
+                obj.put("name", item);
+                if ("hung".equals(item)) {
+                    try {
+                        Thread.sleep(60000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+            }
+        };
+
+        JSONArr arr = new JSONArr();
+        assertEquals(1, ParallelEncoder.encode(Arrays.asList("one", "hung", "two").iterator(), arr, encoder, NAME, 200));
+
+        assertEquals(3, arr.size());
+        assertFalse(arr.object(0).has("error"));
+        assertTrue(arr.object(1).object("error").bool("timeout"));
+        assertFalse(arr.object(2).has("error"));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStorePermits() throws Exception {
+        // a single permit, already taken by another request
+        final Semaphore store = new Semaphore(1);
+        store.acquire();
+
+        JSONArr arr = new JSONArr();
+        ParallelEncoder.encode(Arrays.asList("one", "two").iterator(), arr, NAME, NAME, 200,
+            new Function<String,Semaphore>() {
+                @Override
+                public Semaphore apply(String item) {
+                    return "two".equals(item) ? store : null;
+                }
+            });
+
+        assertFalse(arr.object(0).has("error"));
+        assertTrue(arr.object(1).has("error"));
+        assertEquals(0, store.availablePermits());
+    }
+
+    @Test
+    public void testSecurityContext() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("bob", null));
+
+        Encoder<String> encoder = new Encoder<String>() {
+            @Override
+            public void encode(JSONObj obj, String item) {
+                obj.put("user", SecurityContextHolder.getContext().getAuthentication().getName());
+            }
+        };
+
+        JSONArr arr = new JSONArr().fields(Fields.parse("user"));
+        ParallelEncoder.encode(Arrays.asList("one", "two").iterator(), arr, encoder, NAME, 5000);
+
+        assertEquals("bob", arr.object(0).str("user"));
+        assertEquals("bob", arr.object(1).str("user"));
+    }
+}
@@ -0,0 +1,186 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.api.controllers;
+
+import com.boundlessgeo.geoserver.api.catalog.CapabilitiesCache;
+import com.boundlessgeo.geoserver.api.catalog.PublishedIndex;
+import com.boundlessgeo.geoserver.api.catalog.ResourceNameCache;
+import com.boundlessgeo.geoserver.api.catalog.StoreAccess;
+import com.boundlessgeo.geoserver.api.catalog.StoreDetailsCache;
+import com.boundlessgeo.geoserver.api.catalog.StoreHealth;
+import com.boundlessgeo.geoserver.api.converters.JSONMessageConverter;
+import com.boundlessgeo.geoserver.json.JSONArr;
+import com.boundlessgeo.geoserver.json.JSONObj;
+import com.boundlessgeo.geoserver.json.JSONWrapper;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.impl.CatalogFactoryImpl;
+import org.geoserver.config.GeoServer;
+import org.geotools.data.DataStore;
+import org.geotools.data.DataUtilities;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class StoreControllerTest {
+
+    Catalog cat;
+    DataStoreInfo store;
+    DataStore data;
+    ResourceNameCache resourceNames;
+    StoreAccess access;
+    StoreDetailsCache details;
+
+    MockMvc mvc;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        cat = mock(Catalog.class);
+        GeoServer geoServer = mock(GeoServer.class);
+        when(geoServer.getCatalog()).thenReturn(cat);
+
+        WorkspaceInfo ws = mock(WorkspaceInfo.class);
+        when(ws.getName()).thenReturn("foo");
+
+        store = new CatalogFactoryImpl(cat).createDataStore();
+        store.setName("db");
+        store.setWorkspace(ws);
+        store.setEnabled(true);
+        when(cat.getStoreByName("foo", "db", StoreInfo.class)).thenReturn(store);
+
+        resourceNames = mock(ResourceNameCache.class);
+        when(resourceNames.names(eq(store), any(Callable.class))).thenReturn(
+            Arrays.asList("roads", "rivers", "Railways", "lakes", "parks"));
+
+        data = mock(DataStore.class);
+        when(data.getSchema(anyString())).thenReturn(DataUtilities.createType("roads", "geom:LineString,name:String"));
+        access = mock(StoreAccess.class);
+        when(access.dataStore(store)).thenReturn(data);
+        when(access.call(eq(store), any(Callable.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((Callable<?>) invocation.getArguments()[1]).call();
+            }
+        });
+
+        details = mock(StoreDetailsCache.class);
+        StoreController ctrl = new StoreController(geoServer, resourceNames, details, access,
+            mock(CapabilitiesCache.class), mock(StoreHealth.class), mock(PublishedIndex.class));
+        mvc = MockMvcBuilders.standaloneSetup(ctrl).setMessageConverters(new JSONMessageConverter()).build();
+    }
+
+    JSONObj read(String path) throws Exception {
+        MvcResult result = mvc.perform(get(path)).andExpect(status().isOk()).andReturn();
+        return JSONWrapper.read(result.getResponse().getContentAsString()).toObject();
+    }
+
+    @Test
+    public void testResourcesPage() throws Exception {
+        JSONObj obj = read("/api/stores/foo/db/resources?page=1&pagesize=2");
+        assertEquals(5, obj.integer("total").intValue());
+        assertEquals(1, obj.integer("page").intValue());
+        assertEquals(2, obj.integer("count").intValue());
+
+        JSONArr resources = obj.array("resources");
+        assertEquals(2, resources.size());
+        assertEquals("Railways", resources.object(0).str("name"));
+        assertEquals("lakes", resources.object(1).str("name"));
+        assertFalse(resources.object(0).has("schema"));
+        verify(data, never()).getSchema(anyString());
+
+        // past the end
+        obj = read("/api/stores/foo/db/resources?page=3&pagesize=2");
+        assertEquals(5, obj.integer("total").intValue());
+        assertEquals(0, obj.integer("count").intValue());
+        assertEquals(0, obj.array("resources").size());
+    }
+
+    @Test
+    public void testResourcesPrefix() throws Exception {
+        JSONObj obj = read("/api/stores/foo/db/resources?prefix=r");
+        assertEquals(3, obj.integer("total").intValue());
+
+        JSONArr resources = obj.array("resources");
+        assertEquals("roads", resources.object(0).str("name"));
+        assertEquals("rivers", resources.object(1).str("name"));
+        assertEquals("Railways", resources.object(2).str("name"));
+    }
+
+    @Test
+    public void testResourcesSchema() throws Exception {
+        JSONObj obj = read("/api/stores/foo/db/resources?pagesize=2&schema=true");
+
+        JSONArr resources = obj.array("resources");
+        assertEquals(2, resources.size());
+        for (JSONObj resource : resources.objects()) {
+            assertFalse(resource.has("error"));
+            assertEquals(2, resource.object("schema").array("attributes").size());
+        }
+        verify(data).getSchema("roads");
+        verify(data).getSchema("rivers");
+        verify(data, never()).getSchema("lakes");
+
+        // looked up through the breaker of the store
+        verify(access, times(2)).call(eq(store), any(Callable.class));
+    }
+
+    @Test
+    public void testResourcesInvalidPage() throws Exception {
+        mvc.perform(get("/api/stores/foo/db/resources?page=-1")).andExpect(status().isBadRequest());
+        mvc.perform(get("/api/stores/foo/db/resources?pagesize=-5")).andExpect(status().isBadRequest());
+        mvc.perform(get("/api/stores/foo/db/resources?page=one")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testDetailsWithoutResources() throws Exception {
+        JSONObj obj = read("/api/stores/foo/db");
+        assertEquals("db", obj.str("name"));
+        assertFalse(obj.has("resources"));
+        verify(resourceNames, never()).names(any(StoreInfo.class), any(Callable.class));
+
+        obj = read("/api/stores/foo/db?fields=name,resources");
+        assertTrue(obj.has("resources"));
+        assertEquals(5, obj.array("resources").size());
+    }
+
+    @Test
+    public void testDetailsCached() throws Exception {
+        when(details.version(store)).thenReturn(7L);
+        read("/api/stores/foo/db?fields=name,resources");
+        verify(details).put(eq(store), eq(7L), any(JSONObj.class));
+    }
+
+    @Test
+    public void testDetailsNotCachedWithFailedSchema() throws Exception {
+        when(data.getSchema("lakes")).thenThrow(new IOException("unreachable"));
+        when(data.getSchema("parks")).thenReturn(null);
+
+        // errors projected away are still failures
+        JSONObj obj = read("/api/stores/foo/db?fields=name,resources.name,resources.schema");
+        assertEquals(5, obj.array("resources").size());
+        verify(details, never()).put(any(StoreInfo.class), anyLong(), any(JSONObj.class));
+    }
+}
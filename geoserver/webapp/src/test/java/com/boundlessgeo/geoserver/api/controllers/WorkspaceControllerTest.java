@@ -3,7 +3,10 @@
  */
 package com.boundlessgeo.geoserver.api.controllers;
 
+import com.boundlessgeo.geoserver.api.catalog.CatalogVersions;
+import com.boundlessgeo.geoserver.api.converters.CBORMessageConverter;
 import com.boundlessgeo.geoserver.api.converters.JSONMessageConverter;
+import com.boundlessgeo.geoserver.json.CBOR;
 import com.boundlessgeo.geoserver.json.JSONArr;
 import com.boundlessgeo.geoserver.json.JSONObj;
 import com.boundlessgeo.geoserver.json.JSONWrapper;
@@ -22,10 +25,14 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -36,6 +43,9 @@ public class WorkspaceControllerTest {
     @Mock
     GeoServer geoServer;
 
+    @Mock
+    CatalogVersions versions;
+
     @InjectMocks
     WorkspaceController ctrl;
 
@@ -45,7 +55,8 @@ public class WorkspaceControllerTest {
     public void setUp() {
         MockitoAnnotations.initMocks(this);
 
-        mvc = MockMvcBuilders.standaloneSetup(ctrl).setMessageConverters(new JSONMessageConverter()).build();
+        mvc = MockMvcBuilders.standaloneSetup(ctrl)
+            .setMessageConverters(new JSONMessageConverter(), new CBORMessageConverter()).build();
     }
 
     @Test
@@ -102,6 +113,43 @@ public class WorkspaceControllerTest {
         assertFalse(obj.bool("default"));
     }
 
+    @Test
+    public void testGetCBOR() throws Exception {
+        MockGeoServer.get().catalog()
+            .workspace("foo", "http://scratch.org", true).catalog()
+            .geoServer().build(geoServer);
+
+        MvcResult result = mvc.perform(get("/api/workspaces/foo").accept(CBORMessageConverter.MEDIA_TYPE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(CBORMessageConverter.MEDIA_TYPE))
+            .andReturn();
+
+        JSONObj obj = CBOR.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())).toObject();
+        assertEquals("foo", obj.str("name"));
+        assertEquals("http://scratch.org", obj.str("uri"));
+        assertTrue(obj.bool("default"));
+    }
+
+    @Test
+    public void testPostCBOR() throws Exception {
+        MockGeoServer.get().build(geoServer);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        CBOR.write(new JSONObj().put("name", "foo").put("uri", "http://foo.org"), body);
+
+        MockHttpServletRequestBuilder request = post("/api/workspaces")
+            .contentType(CBORMessageConverter.MEDIA_TYPE)
+            .content(body.toByteArray());
+
+        mvc.perform(request)
+            .andExpect(status().isCreated())
+            .andReturn();
+
+        Catalog cat = geoServer.getCatalog();
+        verify(cat, times(1)).add(isA(WorkspaceInfo.class));
+        verify(cat, times(1)).add(isA(NamespaceInfo.class));
+    }
+
     @Test
     public void testPost() throws Exception {
         MockGeoServer.get().build(geoServer);
@@ -122,6 +170,26 @@ public class WorkspaceControllerTest {
         verify(cat, times(1)).add(isA(NamespaceInfo.class));
     }
 
+    @Test
+    public void testPostTooLarge() throws Exception {
+        MockGeoServer.get().build(geoServer);
+
+        JSONMessageConverter converter = new JSONMessageConverter();
+        converter.setMaxSize(32);
+        mvc = MockMvcBuilders.standaloneSetup(ctrl).setMessageConverters(converter).build();
+
+        JSONObj obj = new JSONObj().put("name", "foo").put("uri", "http://foo.org/a/rather/long/namespace/uri");
+
+        MockHttpServletRequestBuilder request = post("/api/workspaces")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(obj.toString());
+
+        mvc.perform(request).andExpect(status().isRequestEntityTooLarge());
+
+        Catalog cat = geoServer.getCatalog();
+        verify(cat, never()).add(isA(WorkspaceInfo.class));
+    }
+
     @Test
     public void testPut() throws Exception {
         MockGeoServer.get().catalog()
@@ -0,0 +1,122 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CBORTest {
+
+    JSONWrapper<?> read(byte[] bytes) throws IOException {
+        return CBOR.read(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    byte[] nested(int depth, int open, int close) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < depth; i++) {
+            out.write(open);
+        }
+        for (int i = 0; i < depth; i++) {
+            out.write(close);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        JSONObj obj = new JSONObj().put("name", "roads").put("count", 12).put("ratio", 0.5);
+        obj.putArray("tags").add("a").add(null).add(true);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CBOR.write(obj, out);
+
+        JSONObj read = read(out.toByteArray()).toObject();
+        assertEquals("roads", read.str("name"));
+        assertEquals(12, read.integer("count").intValue());
+        assertEquals(0.5, read.doub("ratio"), 0);
+        assertEquals(Arrays.asList("a", null, true), read.array("tags").raw());
+    }
+
+    @Test
+    public void testTags() throws Exception {
+        // tag 1, epoch based date, of an object value
+        JSONObj obj = read(new byte[]{(byte) 0xA1, 0x61, 'd', (byte) 0xC1, 0x1A, 0x54, 0x0B, (byte) 0xE0, 0x00})
+            .toObject();
+        assertEquals(1410064384L, obj.get("d"));
+
+        // tag 0, date string, with a one byte tag number, in an array
+        byte[] date = "2014-08-26".getBytes("UTF-8");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x81);
+        out.write(0xD8);
+        out.write(0);
+        out.write(0x60 | date.length);
+        out.write(date);
+        assertEquals("2014-08-26", read(out.toByteArray()).toArray().str(0));
+    }
+
+    @Test
+    public void testNesting() throws Exception {
+        JSONArr arr = read(nested(CBOR.MAX_DEPTH, 0x9F, 0xFF)).toArray();
+        assertEquals(1, arr.size());
+    }
+
+    @Test
+    public void testNestedTooDeeply() throws Exception {
+        // indefinite length arrays
+        try {
+            read(nested(CBOR.MAX_DEPTH + 1, 0x9F, 0xFF));
+            fail();
+        }
+        catch(IOException e) {
+            assertTrue(e.getMessage().contains("nested too deeply"));
+        }
+
+        // definite length arrays, of a single item
+        try {
+            read(nested(10000, 0x81, 0x00));
+            fail();
+        }
+        catch(IOException e) {
+            assertTrue(e.getMessage().contains("nested too deeply"));
+        }
+    }
+
+    @Test
+    public void testTagChain() throws Exception {
+        byte[] tags = new byte[100000];
+        Arrays.fill(tags, (byte) 0xC6);
+        try {
+            read(tags);
+            fail();
+        }
+        catch(IOException e) {
+            assertTrue(e.getMessage().contains("nested too deeply"));
+        }
+
+        // tags count as nesting
+        byte[] tagged = new byte[CBOR.MAX_DEPTH + 2];
+        Arrays.fill(tagged, (byte) 0xC6);
+        tagged[0] = (byte) 0x81;
+        tagged[tagged.length - 1] = 0;
+        try {
+            read(tagged);
+            fail();
+        }
+        catch(IOException e) {
+            assertTrue(e.getMessage().contains("nested too deeply"));
+        }
+        tagged = Arrays.copyOfRange(tagged, 1, tagged.length);
+        tagged[0] = (byte) 0x81;
+        assertEquals(0L, read(tagged).toArray().at(0));
+    }
+}
@@ -0,0 +1,248 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JSONMapTest {
+
+    /**
+     * Checks the map against the expected content, through lookups and iteration.
+     */
+    void assertContent(Map<String,Object> expected, JSONMap map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(map.keySet()));
+        assertEquals(new ArrayList<Object>(expected.values()), new ArrayList<Object>(map.values()));
+        for (Map.Entry<String,Object> e : expected.entrySet()) {
+            assertTrue(e.getKey(), map.containsKey(e.getKey()));
+            // distinct instance, no identity match
+            assertEquals(e.getValue(), map.get(new String(e.getKey())));
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    void assertIndexed(JSONMap map) {
+        if (map.size() > JSONMap.SCAN_LIMIT) {
+            assertNotNull(map.index);
+            // at most half full
+            assertTrue(map.size() * 2 <= map.index.length);
+        }
+        else {
+            assertNull(map.index);
+        }
+    }
+
+    @Test
+    public void testAcrossScanLimit() {
+        JSONMap map = new JSONMap();
+        Map<String,Object> expected = new LinkedHashMap<String,Object>();
+
+        for (int i = 0; i < JSONMap.SCAN_LIMIT * 2; i++) {
+            String key = "key" + i;
+            assertNull(map.put(key, i));
+            expected.put(key, i);
+            assertIndexed(map);
+            assertContent(expected, map);
+            assertNull(map.get("missing"));
+        }
+
+        // overwrite keeps position
+        for (int i = 0; i < JSONMap.SCAN_LIMIT * 2; i += 3) {
+            String key = "key" + i;
+            assertEquals(i, map.put(key, "v" + i));
+            expected.put(key, "v" + i);
+        }
+        assertContent(expected, map);
+
+        // remove down to below the limit
+        for (int i = JSONMap.SCAN_LIMIT * 2 - 1; i >= 0; i -= 2) {
+            String key = "key" + i;
+            assertEquals(expected.remove(key), map.remove(key));
+            assertNull(map.remove(key));
+            assertIndexed(map);
+            assertContent(expected, map);
+        }
+        assertEquals(JSONMap.SCAN_LIMIT, map.size());
+
+        // and back up
+        map.put("again", 1);
+        expected.put("again", 1);
+        assertIndexed(map);
+        assertContent(expected, map);
+
+        map.clear();
+        assertNull(map.index);
+        assertTrue(map.isEmpty());
+        assertNull(map.get("key0"));
+    }
+
+    @Test
+    public void testGrowth() {
+        JSONMap map = new JSONMap(0);
+        Map<String,Object> expected = new LinkedHashMap<String,Object>();
+        for (int i = 0; i < 1000; i++) {
+            map.put("k" + i, i);
+            expected.put("k" + i, i);
+            assertIndexed(map);
+        }
+        assertContent(expected, map);
+        assertTrue(map.keys.length >= 1000);
+
+        // colliding hashes, "Aa" and "BB"
+        map = new JSONMap();
+        expected.clear();
+        String[] parts = {"Aa", "BB"};
+        for (int i = 0; i < 64; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int b = 0; b < 6; b++) {
+                key.append(parts[(i >> b) & 1]);
+            }
+            map.put(key.toString(), i);
+            expected.put(key.toString(), i);
+        }
+        assertEquals(1, new HashSet<Object>(hashes(map.keySet())).size());
+        assertContent(expected, map);
+        map.remove("AaAaAaAaAaAa");
+        expected.remove("AaAaAaAaAaAa");
+        assertContent(expected, map);
+    }
+
+    List<Integer> hashes(Iterable<String> keys) {
+        List<Integer> hashes = new ArrayList<Integer>();
+        for (String key : keys) {
+            hashes.add(key.hashCode());
+        }
+        return hashes;
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        for (int n : new int[]{JSONMap.SCAN_LIMIT, JSONMap.SCAN_LIMIT + 1, JSONMap.SCAN_LIMIT * 4}) {
+            JSONMap map = new JSONMap();
+            Map<String,Object> expected = new LinkedHashMap<String,Object>();
+            for (int i = 0; i < n; i++) {
+                map.put("k" + i, i);
+                expected.put("k" + i, i);
+            }
+
+            // every third entry, through the key and entry iterators
+            int i = 0;
+            for (Iterator<String> it = map.keySet().iterator(); it.hasNext(); i++) {
+                String key = it.next();
+                if (i % 3 == 0) {
+                    it.remove();
+                    expected.remove(key);
+                }
+            }
+            assertIndexed(map);
+            assertContent(expected, map);
+
+            i = 0;
+            for (Iterator<Map.Entry<String,Object>> it = map.entrySet().iterator(); it.hasNext(); i++) {
+                Map.Entry<String,Object> e = it.next();
+                if (i % 2 == 0) {
+                    it.remove();
+                    expected.remove(e.getKey());
+                }
+                else {
+                    e.setValue("set");
+                    expected.put(e.getKey(), "set");
+                }
+            }
+            assertIndexed(map);
+            assertContent(expected, map);
+            for (String key : expected.keySet()) {
+                assertEquals("set", map.get(key));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIteratorRemoveTwice() {
+        JSONMap map = new JSONMap();
+        map.put("a", 1);
+        map.put("b", 2);
+        Iterator<String> it = map.keySet().iterator();
+        it.next();
+        it.remove();
+        it.remove();
+    }
+
+    @Test
+    public void testOrderAfterRemovals() {
+        Random random = new Random(42);
+        JSONMap map = new JSONMap();
+        Map<String,Object> expected = new LinkedHashMap<String,Object>();
+        for (int i = 0; i < 5000; i++) {
+            String key = "k" + random.nextInt(40);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertIndexed(map);
+            if (i % 50 == 0) {
+                assertContent(expected, map);
+            }
+        }
+        assertContent(expected, map);
+    }
+
+    @Test
+    public void testNulls() {
+        for (int n : new int[]{2, JSONMap.SCAN_LIMIT * 2}) {
+            JSONMap map = new JSONMap();
+            for (int i = 0; i < n; i++) {
+                map.put("k" + i, i);
+            }
+
+            assertFalse(map.containsKey(null));
+            assertNull(map.put(null, "null key"));
+            assertTrue(map.containsKey(null));
+            assertEquals("null key", map.get(null));
+
+            map.put("nothing", null);
+            assertTrue(map.containsKey("nothing"));
+            assertNull(map.get("nothing"));
+            assertTrue(map.containsValue(null));
+
+            // not a string
+            assertFalse(map.containsKey(1));
+            assertNull(map.get(1));
+            assertNull(map.remove(1));
+
+            assertEquals("null key", map.remove(null));
+            assertFalse(map.containsKey(null));
+            assertEquals(n + 1, map.size());
+            assertEquals("nothing", new ArrayList<String>(map.keySet()).get(n));
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        Map<Object,Object> src = new LinkedHashMap<Object,Object>();
+        src.put("a", 1);
+        src.put(2, "b");
+        JSONMap map = new JSONMap(src);
+        assertEquals(1, map.get("a"));
+        assertEquals("b", map.get("2"));
+        assertEquals("{\"a\":1,\"2\":\"b\"}", map.toJSONString());
+    }
+}
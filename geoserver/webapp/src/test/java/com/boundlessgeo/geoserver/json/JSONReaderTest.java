@@ -0,0 +1,193 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.json;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSONReaderTest {
+
+    Object parse(byte[] bytes) throws IOException {
+        return new JSONReader(new ByteArrayInputStream(bytes), bytes.length).parse();
+    }
+
+    Object parse(String json) throws IOException {
+        return parse(json.getBytes("UTF-8"));
+    }
+
+    /**
+     * Wraps a string with a json array, as raw bytes.
+     */
+    byte[] str(int... bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        out.write('"');
+        for (int b : bytes) {
+            out.write(b);
+        }
+        out.write('"');
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    String nested(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append(i % 2 == 0 ? "[" : "{\"a\":");
+        }
+        sb.append('0');
+        for (int i = depth - 1; i >= 0; i--) {
+            sb.append(i % 2 == 0 ? "]" : "}");
+        }
+        return sb.toString();
+    }
+
+    void assertInvalid(byte[] bytes, String msg) {
+        try {
+            parse(bytes);
+            fail();
+        }
+        catch(IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(msg));
+        }
+    }
+
+    void assertInvalid(String json, String msg) throws IOException {
+        assertInvalid(json.getBytes("UTF-8"), msg);
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        JSONObj obj = JSONWrapper.read(new ByteArrayInputStream(
+            "{\"s\":\"a\\\"b\\n\",\"i\":-12,\"d\":1.5e2,\"t\":true,\"n\":null,\"a\":[]} \n".getBytes("UTF-8")), -1)
+            .toObject();
+        assertEquals("a\"b\n", obj.str("s"));
+        assertEquals(-12L, obj.get("i"));
+        assertEquals(150d, obj.get("d"));
+        assertEquals(true, obj.get("t"));
+        assertTrue(obj.has("n"));
+        assertEquals(0, obj.array("a").size());
+    }
+
+    @Test
+    public void testLimitMidToken() throws Exception {
+        StringBuilder sb = new StringBuilder("{\"name\":\"");
+        for (int i = 0; i < 100000; i++) {
+            sb.append('x');
+        }
+        sb.append("\"}");
+        final byte[] bytes = sb.toString().getBytes("UTF-8");
+
+        // one byte at a time, so the limit is hit in the middle of the string
+        final int[] read = {0};
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, Math.min(len, 1));
+                read[0] += Math.max(n, 0);
+                return n;
+            }
+        };
+        try {
+            JSONWrapper.read(in, 20);
+            fail();
+        }
+        catch(JSONTooLargeException e) {
+            assertEquals(20, e.getLimit());
+        }
+        // reading stopped as soon as the limit was passed
+        assertEquals(21, read[0]);
+
+        // content of exactly the limit is fine
+        assertEquals(1, JSONWrapper.read(new ByteArrayInputStream(bytes), bytes.length).toObject().size());
+        try {
+            JSONWrapper.read(new ByteArrayInputStream(bytes), bytes.length - 1);
+            fail();
+        }
+        catch(JSONTooLargeException e) {
+            assertEquals(bytes.length - 1, e.getLimit());
+        }
+    }
+
+    @Test
+    public void testMaxDepth() throws Exception {
+        Object root = parse(nested(JSONReader.MAX_DEPTH));
+        assertTrue(root instanceof List);
+
+        assertInvalid(nested(JSONReader.MAX_DEPTH + 1), "nested too deeply");
+        assertInvalid(nested(100000), "nested too deeply");
+    }
+
+    @Test
+    public void testUTF8() throws Exception {
+        String str = "\u00e9\u20ac" + new String(Character.toChars(0x1F600));
+        JSONArr arr = (JSONArr) JSONWrapper.wrap(parse("[\"" + str + "\"]"));
+        assertEquals(str, arr.str(0));
+    }
+
+    @Test
+    public void testMalformedUTF8() throws Exception {
+        // lone continuation byte
+        assertInvalid(str(0x80), "Invalid UTF-8 byte");
+        // invalid lead bytes
+        assertInvalid(str(0xFF), "Invalid UTF-8 byte");
+        assertInvalid(str(0xF8, 0x88, 0x80, 0x80, 0x80), "Invalid UTF-8 byte");
+        // missing continuation bytes
+        assertInvalid(str(0xE2, 0x82), "Invalid UTF-8 sequence");
+        assertInvalid(str(0xC3, 'a'), "Invalid UTF-8 sequence");
+        // truncated content
+        assertInvalid(new byte[]{'[', '"', (byte) 0xE2}, "Invalid UTF-8 sequence");
+        // beyond U+10FFFF
+        assertInvalid(str(0xF4, 0x90, 0x80, 0x80), "Invalid UTF-8 code point");
+        // UTF-16 surrogates have no place in UTF-8
+        assertInvalid(str(0xED, 0xA0, 0x80), "Invalid UTF-8 code point");
+    }
+
+    @Test
+    public void testOverlongUTF8() throws Exception {
+        // '/' encoded with 2, 3 and 4 bytes
+        assertInvalid(str(0xC0, 0xAF), "Overlong UTF-8 sequence");
+        assertInvalid(str(0xE0, 0x80, 0xAF), "Overlong UTF-8 sequence");
+        assertInvalid(str(0xF0, 0x80, 0x80, 0xAF), "Overlong UTF-8 sequence");
+        // '"' encoded with 2 bytes can not close a string
+        assertInvalid(str(0xC0, 0xA2), "Overlong UTF-8 sequence");
+
+        // smallest code points of each length are fine
+        JSONArr arr = (JSONArr) JSONWrapper.wrap(parse(str(0xC2, 0x80, 0xE0, 0xA0, 0x80, 0xF0, 0x90, 0x80, 0x80)));
+        assertEquals("\u0080\u0800" + new String(Character.toChars(0x10000)), arr.str(0));
+    }
+
+    @Test
+    public void testSurrogatePairEscape() throws Exception {
+        JSONArr arr = (JSONArr) JSONWrapper.wrap(parse("[\"a\\uD83D\\uDE00b\", \"\\u00E9\"]"));
+        String str = arr.str(0);
+        assertEquals(4, str.length());
+        assertEquals(0x1F600, str.codePointAt(1));
+        assertEquals("a" + new String(Character.toChars(0x1F600)) + "b", str);
+        assertEquals("\u00e9", arr.str(1));
+
+        assertInvalid("[\"\\uD83\"]", "Invalid unicode escape");
+    }
+
+    @Test
+    public void testTrailingContent() throws Exception {
+        assertInvalid("{} x", "Unexpected content after value");
+        assertInvalid("{}{}", "Unexpected content after value");
+        assertInvalid("[1]]", "Unexpected content after value");
+        assertInvalid("1 2", "Unexpected content after value");
+
+        // trailing whitespace is fine
+        assertEquals(0, ((List<?>) parse("[] \r\n\t")).size());
+    }
+}
@@ -0,0 +1,133 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.util;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CRSCacheTest {
+
+    CRSCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new CRSCache(CRSCache.MAX_SIZE);
+    }
+
+    @Test
+    public void testEqualInstances() throws Exception {
+        CoordinateReferenceSystem crs1 = CRS.parseWKT(DefaultGeographicCRS.WGS84.toWKT());
+        CoordinateReferenceSystem crs2 = CRS.parseWKT(DefaultGeographicCRS.WGS84.toWKT());
+        assertNotSame(crs1, crs2);
+
+        CRSCache.Info info = cache.info(crs1);
+        assertEquals("geographic", info.type());
+        assertEquals("degrees", info.unit());
+        assertEquals(1, cache.misses());
+        assertEquals(0, cache.hits());
+
+        // same WKT
+        assertSame(info, cache.info(crs2));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+
+        // same instance
+        assertSame(info, cache.info(crs1));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testNotFormattable() throws Exception {
+        CoordinateReferenceSystem crs = mock(CoordinateReferenceSystem.class);
+        when(crs.toWKT()).thenThrow(new UnsupportedOperationException());
+
+        CRSCache.Info info = cache.info(crs);
+        assertEquals("other", info.type());
+        assertSame(info, cache.info(crs));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.size());
+
+        cache.info(DefaultGeographicCRS.WGS84);
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.hits());
+        assertEquals(0, cache.misses());
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        CoordinateReferenceSystem crs = cache.decode("EPSG:4326");
+        assertSame(crs, cache.decode("EPSG:4326"));
+        assertEquals(1, cache.decodeMisses());
+        assertEquals(1, cache.decodeHits());
+        assertEquals(1, cache.decodeSize());
+    }
+
+    @Test
+    public void testDecodeUnknownCode() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.decode("EPSG:999999");
+                fail();
+            }
+            catch(FactoryException e) {
+                assertTrue(e.getMessage().contains("999999"));
+            }
+        }
+        assertEquals(1, cache.decodeMisses());
+        assertEquals(1, cache.decodeHits());
+        assertEquals(1, cache.decodeSize());
+    }
+
+    @Test
+    public void testDecodeFailureNotCached() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        cache = new CRSCache(CRSCache.MAX_SIZE) {
+            @Override
+            CoordinateReferenceSystem lookup(String srs) throws FactoryException {
+                if (calls.incrementAndGet() < 3) {
+                    throw new FactoryException("EPSG database unavailable");
+                }
+                return DefaultGeographicCRS.WGS84;
+            }
+        };
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.decode("EPSG:4326");
+                fail();
+            }
+            catch(FactoryException e) {
+                assertEquals("EPSG database unavailable", e.getMessage());
+            }
+        }
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.decodeMisses());
+        assertEquals(0, cache.decodeSize());
+
+        // recovered
+        assertSame(DefaultGeographicCRS.WGS84, cache.decode("EPSG:4326"));
+        assertSame(DefaultGeographicCRS.WGS84, cache.decode("EPSG:4326"));
+        assertEquals(3, calls.get());
+        assertEquals(1, cache.decodeHits());
+    }
+}
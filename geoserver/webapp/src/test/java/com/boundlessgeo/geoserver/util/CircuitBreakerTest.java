@@ -0,0 +1,153 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.geotools.data.wms.WebMapServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest {
+
+    HttpServer wms;
+    ExecutorService executor;
+
+    final long delay = 5000;
+
+    @Before
+    public void setUp() throws IOException {
+        // stub wms that answers every request late
+        wms = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        wms.createContext("/wms", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+            }
+        });
+        wms.setExecutor(Executors.newCachedThreadPool());
+        wms.start();
+
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        wms.stop(0);
+        executor.shutdownNow();
+    }
+
+    Callable<WebMapServer> capabilities() throws IOException {
+        final URL url = new URL("http://localhost:" + wms.getAddress().getPort()
+            + "/wms?service=WMS&request=GetCapabilities");
+        return new Callable<WebMapServer>() {
+            @Override
+            public WebMapServer call() throws Exception {
+                return new WebMapServer(url);
+            }
+        };
+    }
+
+    @Test
+    public void testTimeoutOpensBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("stub", executor, 200, 2, 60000);
+
+        for (int i = 0; i < 2; i++) {
+            long started = System.currentTimeMillis();
+            try {
+                breaker.call(capabilities());
+                fail("hung wms should time out");
+            } catch (CircuitBreaker.OpenException e) {
+                fail("breaker should not be open yet");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Timed out after 200 ms"));
+            }
+            assertTrue(System.currentTimeMillis() - started < 2000);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2, breaker.failures());
+
+        long started = System.currentTimeMillis();
+        try {
+            breaker.call(capabilities());
+            fail("open breaker should refuse calls");
+        } catch (CircuitBreaker.OpenException e) {
+            assertTrue(e.getMessage().startsWith("stub is unavailable"));
+        }
+        assertTrue(System.currentTimeMillis() - started < 100);
+    }
+
+    @Test
+    public void testHalfOpenProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("stub", executor, 200, 1, 300);
+
+        try {
+            breaker.call(capabilities());
+            fail("hung wms should time out");
+        } catch (IOException e) {
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(400);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        // failed probe opens the breaker again
+        try {
+            breaker.call(capabilities());
+            fail("hung wms should time out");
+        } catch (CircuitBreaker.OpenException e) {
+            fail("probe should go through");
+        } catch (IOException e) {
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        // successful probe closes it
+        Thread.sleep(400);
+        assertEquals("ok", breaker.call(new Callable<String>() {
+            @Override
+            public String call() {
+                return "ok";
+            }
+        }));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.failures());
+    }
+
+    @Test
+    public void testSaturationNotCounted() throws Exception {
+        ExecutorService full = Executors.newSingleThreadExecutor();
+        full.shutdown();
+        CircuitBreaker breaker = new CircuitBreaker("stub", full, 200, 1, 60000);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                breaker.call(capabilities());
+                fail("executor should refuse the call");
+            } catch (CircuitBreaker.SaturatedException e) {
+                assertTrue(e.getMessage().contains("stub was not accessed"));
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.failures());
+    }
+}
@@ -0,0 +1,78 @@
+/* (c) 2014 Boundless, http://boundlessgeo.com
+ * This code is licensed under the GPL 2.0 license.
+ */
+package com.boundlessgeo.geoserver.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ErrorBufferTest {
+
+    Exception error(String method) {
+        Exception e = new IOException("failed in " + method, new IllegalStateException("cause"));
+        e.setStackTrace(new StackTraceElement[]{new StackTraceElement("Store", method, null, 1)});
+        e.getCause().setStackTrace(new StackTraceElement[0]);
+        return e;
+    }
+
+    @Test
+    public void testDedup() throws Exception {
+        ErrorBuffer buf = new ErrorBuffer(4);
+
+        ErrorBuffer.Entry e = buf.add(error("read"));
+        assertSame(e, buf.add(error("read")));
+        assertEquals(2, e.count());
+        assertEquals("failed in read", e.message());
+        assertEquals(2, e.causes().size());
+        assertEquals(1, buf.size());
+
+        assertNotEquals(e.id(), buf.add(error("write")).id());
+        assertEquals(2, buf.size());
+    }
+
+    @Test
+    public void testDedupHashCollision() throws Exception {
+        // "Aa" and "BB" share a hash, so do the frames and the signatures
+        Exception aa = error("Aa");
+        Exception bb = error("BB");
+        assertEquals(aa.getStackTrace()[0].hashCode(), bb.getStackTrace()[0].hashCode());
+
+        ErrorBuffer buf = new ErrorBuffer(4);
+        ErrorBuffer.Entry e1 = buf.add(aa);
+        ErrorBuffer.Entry e2 = buf.add(bb);
+        assertEquals(e1.signature.hashCode(), e2.signature.hashCode());
+
+        assertNotEquals(e1.id(), e2.id());
+        assertEquals(1, e1.count());
+        assertEquals(1, e2.count());
+        assertEquals("failed in BB", e2.message());
+        assertEquals(2, buf.size());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        ErrorBuffer buf = new ErrorBuffer(2);
+
+        ErrorBuffer.Entry one = buf.add(error("one"));
+        ErrorBuffer.Entry two = buf.add(error("two"));
+        ErrorBuffer.Entry three = buf.add(error("three"));
+
+        assertEquals(2, buf.size());
+        assertNull(buf.find(one.id()));
+        assertNotNull(buf.find(two.id()));
+        assertNotNull(buf.find(three.id()));
+
+        // no longer deduplicated once evicted
+        ErrorBuffer.Entry again = buf.add(error("one"));
+        assertNotEquals(one.id(), again.id());
+        assertEquals(1, again.count());
+        assertNull(buf.find(two.id()));
+    }
+}